@@ -0,0 +1,70 @@
+package ru.utalieva.victorina.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.utalieva.victorina.model.converter.AnswerCodec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись и чтение ответов попытки: прежний JSON со строковыми ключами
+ * (Integer -> String при сохранении и parseInt при чтении) против упакованного BYTEA.
+ * Размер значения: 10 вопросов - JSON 61 байт, упаковано 10; 50 вопросов - JSON 341 байт, упаковано 50.
+ * В базе его можно сверить через pg_column_size(user_answers).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnswerStorageBenchmark {
+    private static final TypeReference<Map<String, Integer>> JSON_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"10", "50"})
+    private int questions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Map<Integer, Integer> answers;
+    private byte[] json;
+    private byte[] packed;
+
+    @Setup
+    public void setUp() throws Exception {
+        answers = new HashMap<>();
+        for (int i = 0; i < questions; i++) {
+            answers.put(i, ThreadLocalRandom.current().nextInt(4));
+        }
+        json = writeJson();
+        packed = AnswerCodec.encode(answers);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws Exception {
+        Map<String, Integer> userAnswers = new HashMap<>();
+        answers.forEach((questionIndex, optionIndex) -> userAnswers.put(String.valueOf(questionIndex), optionIndex));
+        return objectMapper.writeValueAsBytes(userAnswers);
+    }
+
+    @Benchmark
+    public byte[] writePacked() {
+        return AnswerCodec.encode(answers);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> readJson() throws Exception {
+        Map<Integer, Integer> result = new HashMap<>();
+        objectMapper.readValue(json, JSON_TYPE).forEach((key, value) -> result.put(Integer.parseInt(key), value));
+        return result;
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> readPacked() {
+        return AnswerCodec.decode(packed);
+    }
+}
@@ -0,0 +1,150 @@
+package ru.utalieva.victorina.benchmark;
+
+import ru.utalieva.victorina.model.entity.Option;
+import ru.utalieva.victorina.model.entity.Question;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.entity.QuizResult;
+import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Синтетические викторины и ответы для бенчмарков. Всё строится от фиксированного seed,
+ * поэтому данные одинаковы между запусками и результаты можно сравнивать.
+ */
+final class BenchmarkData {
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /** Обычная викторина с правильными ответами и тремя результатами по баллам. */
+    static Quiz standardQuiz(int questions, int options) {
+        Random random = new Random(SEED);
+        Quiz quiz = quiz(QuizType.STANDARD);
+        List<Question> quizQuestions = new ArrayList<>();
+        for (int q = 0; q < questions; q++) {
+            Question question = question(quiz, q);
+            question.setCorrectIndex(random.nextInt(options));
+            List<Option> questionOptions = new ArrayList<>();
+            for (int o = 0; o < options; o++) {
+                questionOptions.add(option(question, o, null));
+            }
+            question.setOptions(questionOptions);
+            quizQuestions.add(question);
+        }
+        quiz.setQuestions(quizQuestions);
+
+        List<QuizResult> results = new ArrayList<>();
+        int step = Math.max(1, questions / 3);
+        for (int r = 0; r < 3; r++) {
+            QuizResult result = result(quiz, r);
+            result.setMinScore(r * step);
+            result.setMaxScore(r == 2 ? questions : (r + 1) * step - 1);
+            results.add(result);
+        }
+        quiz.setResults(results);
+        return quiz;
+    }
+
+    /** Личностный тест: у вариантов по три характеристики с весом 0..5, у результатов целевые векторы 0..20. */
+    static Quiz personalityQuiz(int questions, int options, int results, int traits) {
+        Random random = new Random(SEED);
+        Quiz quiz = quiz(QuizType.PERSONALITY);
+        List<Question> quizQuestions = new ArrayList<>();
+        for (int q = 0; q < questions; q++) {
+            Question question = question(quiz, q);
+            List<Option> questionOptions = new ArrayList<>();
+            for (int o = 0; o < options; o++) {
+                questionOptions.add(option(question, o, traits(random, Math.min(3, traits), traits, 5)));
+            }
+            question.setOptions(questionOptions);
+            quizQuestions.add(question);
+        }
+        quiz.setQuestions(quizQuestions);
+
+        List<QuizResult> quizResults = new ArrayList<>();
+        for (int r = 0; r < results; r++) {
+            QuizResult result = result(quiz, r);
+            result.setPersonalityTraits(traits(random, traits, traits, 20));
+            quizResults.add(result);
+        }
+        quiz.setResults(quizResults);
+        return quiz;
+    }
+
+    /** Ответ на каждый вопрос: номер вопроса -> номер варианта. */
+    static Map<Integer, Integer> answers(int questions, int options) {
+        Random random = new Random(SEED + 1);
+        Map<Integer, Integer> answers = new HashMap<>();
+        for (int q = 0; q < questions; q++) {
+            answers.put(q, random.nextInt(options));
+        }
+        return answers;
+    }
+
+    static String traitName(int index) {
+        return "trait" + index;
+    }
+
+    private static Quiz quiz(QuizType type) {
+        User author = new User();
+        author.setId(1L);
+        author.setUsername("benchmark-author");
+
+        Quiz quiz = new Quiz();
+        quiz.setId(1L);
+        quiz.setTitle("Синтетическая викторина для бенчмарка");
+        quiz.setDescription("Сгенерирована BenchmarkData с seed " + SEED);
+        quiz.setCategory("Наука");
+        quiz.setDifficulty("medium");
+        quiz.setQuizType(type);
+        quiz.setTimeDuration(600);
+        quiz.setPublic(true);
+        quiz.setTags(new ArrayList<>(List.of("бенчмарк", "синтетика", "jmh")));
+        quiz.setAuthor(author);
+        quiz.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return quiz;
+    }
+
+    private static Question question(Quiz quiz, int index) {
+        Question question = new Question();
+        question.setId((long) index + 1);
+        question.setQuiz(quiz);
+        question.setQuestion("Вопрос номер " + (index + 1) + ": какой из вариантов ниже верный?");
+        return question;
+    }
+
+    private static Option option(Question question, int index, Map<String, Integer> traits) {
+        Option option = new Option();
+        option.setId(question.getId() * 100 + index);
+        option.setQuestion(question);
+        option.setType("text");
+        option.setContent("Вариант ответа " + (index + 1));
+        option.setTraits(traits);
+        return option;
+    }
+
+    private static QuizResult result(Quiz quiz, int index) {
+        QuizResult result = new QuizResult();
+        result.setId((long) index + 1);
+        result.setQuiz(quiz);
+        result.setTitle("Результат " + (index + 1));
+        result.setDescription("Описание результата " + (index + 1));
+        return result;
+    }
+
+    private static Map<String, Integer> traits(Random random, int count, int traits, int maxValue) {
+        Map<String, Integer> values = new HashMap<>();
+        while (values.size() < count) {
+            values.put(traitName(random.nextInt(traits)), random.nextInt(maxValue + 1));
+        }
+        return values;
+    }
+}
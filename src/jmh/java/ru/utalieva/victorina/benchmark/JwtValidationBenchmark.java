@@ -0,0 +1,77 @@
+package ru.utalieva.victorina.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import ru.utalieva.victorina.model.enumination.Role;
+import ru.utalieva.victorina.security.JwtTokenUtil;
+import ru.utalieva.victorina.security.UserPrincipal;
+import ru.utalieva.victorina.security.VerifiedToken;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость аутентификации одного запроса: прежняя схема (новый парсер и три разбора токена)
+ * против однократной проверки готовым парсером, с кэшем проверенных токенов и без него.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtValidationBenchmark {
+    private JwtTokenUtil uncached;
+    private JwtTokenUtil memoized;
+    private String token;
+
+    private SecretKey legacyKey;
+    private String legacyToken;
+
+    @Setup
+    public void setUp() {
+        uncached = new JwtTokenUtil(false, 0, Duration.ZERO);
+        memoized = new JwtTokenUtil(true, 10_000, Duration.ofMinutes(1));
+        token = uncached.generateToken(new UserPrincipal(42L, "benchmark-user", Role.USER));
+
+        legacyKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        legacyToken = Jwts.builder()
+                .setSubject("benchmark-user")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(legacyKey)
+                .compact();
+    }
+
+    /** Как было: extractUsername в фильтре, затем extractUsername и extractExpiration в validateToken. */
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String username = legacyClaims(legacyToken).getSubject();
+        String again = legacyClaims(legacyToken).getSubject();
+        Date expiration = legacyClaims(legacyToken).getExpiration();
+        return username.equals(again) && expiration.after(new Date());
+    }
+
+    @Benchmark
+    public VerifiedToken verifyOnce() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyMemoized() {
+        return memoized.verify(token);
+    }
+
+    private Claims legacyClaims(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(legacyKey)
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.utalieva.victorina.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.service.AnswerKey;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подбор результата личностного теста: матрицы характеристик скомпилированного AnswerKey
+ * против обхода Map<String, Integer> вариантов и результатов при каждой отправке.
+ * Выделение памяти видно с -prof gc.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonalityMatchBenchmark {
+    private static final int QUESTIONS = 30;
+    private static final int OPTIONS = 4;
+
+    @Param({"100"})
+    private int results;
+
+    @Param({"20"})
+    private int traits;
+
+    private Quiz quiz;
+    private AnswerKey answerKey;
+    private Map<Integer, Integer> answers;
+
+    @Setup
+    public void setUp() {
+        quiz = BenchmarkData.personalityQuiz(QUESTIONS, OPTIONS, results, traits);
+        answerKey = AnswerKey.compile(quiz);
+        answers = BenchmarkData.answers(QUESTIONS, OPTIONS);
+        if (matchCompiled() != matchMaps()) {
+            throw new IllegalStateException("Способы подбора расходятся");
+        }
+    }
+
+    @Benchmark
+    public int matchCompiled() {
+        return answerKey.matchPersonalityResult(answers);
+    }
+
+    @Benchmark
+    public int matchMaps() {
+        Map<String, Integer> scores = new HashMap<>();
+        answers.forEach((questionIndex, optionIndex) -> quiz.getQuestions().get(questionIndex).getOptions()
+                .get(optionIndex).getTraits().forEach((name, value) -> scores.merge(name, value, Integer::sum)));
+
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (int r = 0; r < quiz.getResults().size(); r++) {
+            Map<String, Integer> target = quiz.getResults().get(r).getPersonalityTraits();
+            long distance = 0;
+            for (int t = 0; t < traits; t++) {
+                String name = BenchmarkData.traitName(t);
+                long delta = (long) scores.getOrDefault(name, 0) - target.getOrDefault(name, 0);
+                distance += delta * delta;
+            }
+            if (distance < bestDistance) {
+                best = r;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.utalieva.victorina.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.utalieva.victorina.model.dto.QuizDTO;
+import ru.utalieva.victorina.model.entity.Quiz;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ GET /api/quizzes/{id} на больших викторинах: маппинг сущности в QuizDTO
+ * и сериализация DTO тем же ObjectMapper, что собирает Spring Boot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuizDtoBenchmark {
+    private static final int OPTIONS = 4;
+
+    @Param({"20", "200"})
+    private int questions;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Quiz quiz;
+    private QuizDTO dto;
+
+    @Setup
+    public void setUp() {
+        quiz = BenchmarkData.personalityQuiz(questions, OPTIONS, 10, 8);
+        dto = QuizDTO.fromEntity(quiz);
+    }
+
+    @Benchmark
+    public QuizDTO fromEntity() {
+        return QuizDTO.fromEntity(quiz);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] fromEntityAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(QuizDTO.fromEntity(quiz));
+    }
+}
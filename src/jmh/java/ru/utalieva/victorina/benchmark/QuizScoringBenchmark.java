@@ -0,0 +1,65 @@
+package ru.utalieva.victorina.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.utalieva.victorina.model.entity.Question;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.service.AnswerKey;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подсчёт баллов при отправке: скомпилированный AnswerKey против обхода сущностей
+ * Question с проверкой correctIndex, как считал прежний calculateScore.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuizScoringBenchmark {
+    private static final int OPTIONS = 4;
+
+    @Param({"10", "100"})
+    private int questions;
+
+    private Quiz quiz;
+    private AnswerKey answerKey;
+    private Map<Integer, Integer> answers;
+
+    @Setup
+    public void setUp() {
+        quiz = BenchmarkData.standardQuiz(questions, OPTIONS);
+        answerKey = AnswerKey.compile(quiz);
+        answers = BenchmarkData.answers(questions, OPTIONS);
+        if (scoreCompiled() != scoreEntities()) {
+            throw new IllegalStateException("Способы подсчёта расходятся");
+        }
+    }
+
+    @Benchmark
+    public int scoreCompiled() {
+        return answerKey.score(answers);
+    }
+
+    @Benchmark
+    public int scoreEntities() {
+        List<Question> quizQuestions = quiz.getQuestions();
+        int score = 0;
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            int questionIndex = answer.getKey();
+            if (questionIndex >= 0 && questionIndex < quizQuestions.size()
+                    && answer.getValue().equals(quizQuestions.get(questionIndex).getCorrectIndex())) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    @Benchmark
+    public AnswerKey compileAnswerKey() {
+        return AnswerKey.compile(quiz);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.utalieva.victorina.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.utalieva.victorina.repository.QuizSearchRepository;
+import ru.utalieva.victorina.service.QuizSearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Поиск по индексу в памяти на синтетическом каталоге: 20 категорий, 3 сложности, 500 тегов,
+ * словарь из 5000 слов с частыми и редкими словами. База не нужна: документы и разбор запроса
+ * подставляет заглушка репозитория. limit 21 - первая страница поиска.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuizSearchBenchmark {
+    private static final int LIMIT = 21;
+    private static final int WORDS = 5000;
+
+    @Param({"100000"})
+    private int quizzes;
+
+    private QuizSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        List<QuizSearchRepository.Document> documents = documents(quizzes);
+        index = new QuizSearchIndex(new QuizSearchRepository(null) {
+            @Override
+            public void forEachDocument(Consumer<Document> consumer) {
+                documents.forEach(consumer);
+            }
+
+            @Override
+            public List<Document> findDocuments(Collection<Long> quizIds) {
+                return List.of();
+            }
+
+            @Override
+            public List<String> analyze(String text) {
+                return List.of(text.split(" "));
+            }
+        }, 100);
+        index.onStartup();
+    }
+
+    @Benchmark
+    public QuizSearchIndex.Result all() {
+        return index.search(null, null, null, null, LIMIT);
+    }
+
+    @Benchmark
+    public QuizSearchIndex.Result category() {
+        return index.search(null, "category3", null, null, LIMIT);
+    }
+
+    @Benchmark
+    public QuizSearchIndex.Result categoryAndDifficulty() {
+        return index.search(null, "category3", "hard", null, LIMIT);
+    }
+
+    @Benchmark
+    public QuizSearchIndex.Result tag() {
+        return index.search(null, null, null, "tag7", LIMIT);
+    }
+
+    @Benchmark
+    public QuizSearchIndex.Result frequentTerm() {
+        return index.search("word0", null, null, null, LIMIT);
+    }
+
+    @Benchmark
+    public QuizSearchIndex.Result twoTermsAndFilter() {
+        return index.search("word1 word5", "category3", null, null, LIMIT);
+    }
+
+    private static List<QuizSearchRepository.Document> documents(int count) {
+        Random random = new Random(42);
+        String[] difficulties = {"easy", "medium", "hard"};
+        List<QuizSearchRepository.Document> documents = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            List<String> tags = new ArrayList<>();
+            for (int t = random.nextInt(4); t > 0; t--) {
+                tags.add("tag" + (int) (500 * Math.pow(random.nextDouble(), 2)));
+            }
+            List<String> lexemes = new ArrayList<>();
+            List<String> weights = new ArrayList<>();
+            for (int w = 0; w < 12; w++) {
+                // Квадрат равномерного числа: первые слова словаря встречаются в большинстве викторин
+                String word = "word" + (int) (WORDS * Math.pow(random.nextDouble(), 3));
+                if (!lexemes.contains(word)) {
+                    lexemes.add(word);
+                    weights.add(w < 4 ? "A" : "B");
+                }
+            }
+            documents.add(new QuizSearchRepository.Document((long) i, "category" + random.nextInt(20),
+                    difficulties[random.nextInt(3)], i * 1000L, tags, lexemes, weights));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,120 @@
+package ru.utalieva.victorina.benchmark;
+
+import ch.qos.logback.classic.LoggerContext;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.utalieva.victorina.controller.QuizController;
+import ru.utalieva.victorina.model.enumination.Role;
+import ru.utalieva.victorina.security.JwtAuthenticationFilter;
+import ru.utalieva.victorina.security.JwtTokenUtil;
+import ru.utalieva.victorina.security.UserPrincipal;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы логирования на запрос GET /api/quizzes/{id} в профиле по умолчанию и в prod.
+ * Логирование настраивается как в приложении: logback-spring.xml и уровни logging.level.*
+ * из application.properties (и application-prod.properties); консольный вывод уходит в никуда.
+ * Запрос - JwtAuthenticationFilter и строки DEBUG, которые на этом пути пишут FilterChainProxy,
+ * DispatcherServlet и QuizController. legacyFilterLogging - удалённое логирование заголовков и токена.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestLoggingBenchmark {
+    private static final Logger SECURITY = LoggerFactory.getLogger("org.springframework.security.web.FilterChainProxy");
+    private static final Logger DISPATCHER = LoggerFactory.getLogger("org.springframework.web.servlet.DispatcherServlet");
+    private static final Logger CONTROLLER = LoggerFactory.getLogger(QuizController.class);
+    private static final Logger FILTER = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private final PrintStream stdout = System.out;
+    private LoggingSystem loggingSystem;
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        if (profile.equals("prod")) {
+            environment.setActiveProfiles("prod");
+            environment.getPropertySources().addLast(new ResourcePropertySource("classpath:application-prod.properties"));
+        }
+        environment.getPropertySources().addLast(new ResourcePropertySource("classpath:application.properties"));
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.beforeInitialize();
+        loggingSystem.initialize(new LoggingInitializationContext(environment), "classpath:logback-spring.xml", null);
+        for (var source : environment.getPropertySources()) {
+            for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+                if (name.startsWith("logging.level.")) {
+                    loggingSystem.setLogLevel(name.substring("logging.level.".length()),
+                            LogLevel.valueOf(environment.getProperty(name)));
+                }
+            }
+        }
+
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(true, 10_000, Duration.ofMinutes(1));
+        filter = new JwtAuthenticationFilter(jwtTokenUtil, null, true);
+        authorization = "Bearer " + jwtTokenUtil.generateToken(new UserPrincipal(42L, "benchmark-user", Role.USER));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        loggingSystem.cleanUp();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticatedRequest() throws Exception {
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SECURITY.debug("Securing {} {}", request.getMethod(), request.getRequestURI());
+        filter.doFilter(request, response, new MockFilterChain());
+        DISPATCHER.debug("{} \"{}\", parameters={}", request.getMethod(), request.getRequestURI(), "{}");
+        CONTROLLER.debug("Getting quiz by id: {}", 7L);
+        DISPATCHER.debug("Completed {} {}", response.getStatus(), "OK");
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletRequest legacyFilterLogging() {
+        MockHttpServletRequest request = request();
+        FILTER.debug("Processing request: {} {}", request.getMethod(), request.getRequestURI());
+        FILTER.debug("Headers: {}", Collections.list(request.getHeaderNames()));
+        FILTER.debug("Authorization header: {}", request.getHeader("Authorization"));
+        FILTER.debug("Extracted JWT token: {}", request.getHeader("Authorization").substring(7));
+        return request;
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/quizzes/7");
+        request.addHeader("Authorization", authorization);
+        request.addHeader("Accept", "application/json");
+        request.addHeader("User-Agent", "benchmark");
+        return request;
+    }
+}
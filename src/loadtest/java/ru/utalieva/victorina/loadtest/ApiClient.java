@@ -0,0 +1,94 @@
+package ru.utalieva.victorina.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP-клиент нагрузочного теста: блокирующие вызовы из виртуальных потоков, время каждого
+ * запроса пишется в переданный LatencyRecorder под именем эндпоинта.
+ */
+final class ApiClient {
+    /** Ответ сервера; status 0 — запрос не дошёл (таймаут, обрыв соединения). */
+    record Response(int status, JsonNode body) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    ApiClient(String baseUrl, Duration requestTimeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+    }
+
+    Response get(LatencyRecorder recorder, String endpoint, String path, String token) {
+        return send(recorder, endpoint, request(path, token).GET());
+    }
+
+    Response post(LatencyRecorder recorder, String endpoint, String path, Object body, String token) {
+        HttpRequest.BodyPublisher publisher;
+        try {
+            publisher = body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return send(recorder, endpoint, request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(publisher));
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private Response send(LatencyRecorder recorder, String endpoint, HttpRequest.Builder request) {
+        long started = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            recorder.record(endpoint, response.statusCode(), System.nanoTime() - started);
+            return new Response(response.statusCode(), parse(response.body()));
+        } catch (IOException e) {
+            recorder.record(endpoint, 0, System.nanoTime() - started);
+            return new Response(0, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(0, null);
+        }
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            // Не JSON, например страница ошибки контейнера
+            return null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.utalieva.victorina.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Задержки и коды ответов по эндпоинтам. Хранит все замеры, перцентили считаются
+ * по отсортированному массиву в конце прогона; на миллион запросов это 8 МБ.
+ * Перцентили только по успешным ответам: быстрые 503 от ограничителя иначе занижали бы их.
+ */
+final class LatencyRecorder {
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, int status, long nanos) {
+        endpoints.computeIfAbsent(endpoint, name -> new Endpoint()).record(status, nanos);
+    }
+
+    /** Сводка по эндпоинтам в порядке имён; ошибки — ответы не 2xx и сбои соединения (статус 0). */
+    Map<String, Map<String, Object>> summary(double elapsedSeconds) {
+        Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+        new TreeMap<>(endpoints).forEach((name, endpoint) -> summary.put(name, endpoint.summary(elapsedSeconds)));
+        return summary;
+    }
+
+    private static final class Endpoint {
+        private long[] samples = new long[1024];
+        private int count;
+        private long requests;
+        private long errors;
+        private final Map<Integer, Long> statuses = new TreeMap<>();
+
+        synchronized void record(int status, long nanos) {
+            requests++;
+            statuses.merge(status, 1L, Long::sum);
+            if (status < 200 || status >= 300) {
+                errors++;
+                return;
+            }
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        synchronized Map<String, Object> summary(double elapsedSeconds) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long sample : sorted) {
+                total += sample;
+            }
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("min", millis(count == 0 ? 0 : sorted[0]));
+            latency.put("mean", millis(count == 0 ? 0 : total / count));
+            latency.put("p50", millis(percentile(sorted, 50)));
+            latency.put("p90", millis(percentile(sorted, 90)));
+            latency.put("p95", millis(percentile(sorted, 95)));
+            latency.put("p99", millis(percentile(sorted, 99)));
+            latency.put("p999", millis(percentile(sorted, 99.9)));
+            latency.put("max", millis(count == 0 ? 0 : sorted[count - 1]));
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", requests);
+            summary.put("errors", errors);
+            summary.put("throughputPerSecond", Math.round(requests / elapsedSeconds * 10) / 10.0);
+            summary.put("successPerSecond", Math.round(count / elapsedSeconds * 10) / 10.0);
+            summary.put("statuses", new LinkedHashMap<>(statuses));
+            summary.put("latencyMs", latency);
+            return summary;
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 10_000.0) / 100.0;
+        }
+    }
+}
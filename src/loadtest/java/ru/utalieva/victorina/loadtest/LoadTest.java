@@ -0,0 +1,346 @@
+package ru.utalieva.victorina.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ru.utalieva.victorina.model.dto.LoginRequest;
+import ru.utalieva.victorina.model.dto.QuizAttemptRequest;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Нагрузочный тест против запущенного приложения. Сначала через настоящие эндпоинты регистрирует
+ * пользователей (POST /auth/register, /auth/login) и создаёт викторины (POST /api/quizzes), затем
+ * каждый клиент в своём виртуальном потоке без пауз проигрывает сценарий:
+ * <ul>
+ *     <li>mixed — каталог (иногда следующая страница), карточка викторины, старт, отправка ответов,
+ *     иногда история попыток /api/quiz-attempts/my;</li>
+ *     <li>submit — только старт и отправка, всплеск отправок.</li>
+ * </ul>
+ * По каждому эндпоинту считаются пропускная способность, коды ответов и перцентили задержки успешных ответов;
+ * отчёт пишется в JSON (--report) и кратко печатается в консоль.
+ * <p>
+ * Запуск: {@code mvn -Ploadtest verify -Dloadtest.args="--clients=200 --duration=60"}.
+ * Параметры с значениями по умолчанию — в {@link Options}.
+ */
+public final class LoadTest {
+    private static final int SEED_ATTEMPTS = 10;
+
+    private final Options options;
+    private final ApiClient client;
+    private final SyntheticData data;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.client = new ApiClient(options.baseUrl, Duration.ofSeconds(options.timeoutSeconds));
+        this.data = new SyntheticData(options.seed, options.userPrefix);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new LoadTest(options).run();
+    }
+
+    private record SeededQuiz(long id, int questions) {
+    }
+
+    private void run() throws Exception {
+        LatencyRecorder seedRecorder = new LatencyRecorder();
+        long seedStarted = System.nanoTime();
+        List<String> tokens = seedUsers(seedRecorder);
+        List<SeededQuiz> quizzes = seedQuizzes(seedRecorder, tokens);
+        double seedSeconds = seconds(System.nanoTime() - seedStarted);
+        System.out.printf("Seeded %d users and %d quizzes in %.1f s%n", tokens.size(), quizzes.size(), seedSeconds);
+
+        // Замеры прогрева выбрасываются: клиенты пишут в текущий recorder, он подменяется после прогрева
+        LatencyRecorder recorder = new LatencyRecorder();
+        AtomicReference<LatencyRecorder> current = new AtomicReference<>(new LatencyRecorder());
+        long deadline = System.nanoTime() + Duration.ofSeconds(options.warmupSeconds + options.durationSeconds).toNanos();
+
+        List<Thread> clients = new ArrayList<>(options.clients);
+        for (int i = 0; i < options.clients; i++) {
+            String token = tokens.get(i);
+            Random random = new Random(options.seed + i);
+            clients.add(Thread.ofVirtual().name("load-client-" + i)
+                    .start(() -> runClient(current, token, quizzes, random, deadline)));
+        }
+        System.out.printf("Started %d clients, scenario %s, warmup %d s, measuring %d s%n",
+                options.clients, options.scenario, options.warmupSeconds, options.durationSeconds);
+
+        Thread.sleep(Duration.ofSeconds(options.warmupSeconds));
+        current.set(recorder);
+        long measureStarted = System.nanoTime();
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        double measuredSeconds = seconds(System.nanoTime() - measureStarted);
+
+        writeReport(seedRecorder.summary(seedSeconds), seedSeconds, recorder.summary(measuredSeconds), measuredSeconds);
+    }
+
+    private void runClient(AtomicReference<LatencyRecorder> current, String token, List<SeededQuiz> quizzes,
+                           Random random, long deadline) {
+        String cursor = null;
+        while (System.nanoTime() < deadline) {
+            SeededQuiz quiz = quizzes.get(random.nextInt(quizzes.size()));
+            if (options.scenario.equals("mixed")) {
+                String path = "/api/quizzes?limit=20";
+                if (cursor != null && random.nextInt(10) < 3) {
+                    path += "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+                }
+                ApiClient.Response catalog = client.get(current.get(), "GET /api/quizzes", path, token);
+                cursor = catalog.ok() && catalog.body().hasNonNull("nextCursor")
+                        ? catalog.body().get("nextCursor").asText() : null;
+                pause(random);
+                client.get(current.get(), "GET /api/quizzes/{id}", "/api/quizzes/" + quiz.id(), token);
+                pause(random);
+            }
+
+            ApiClient.Response start = client.post(current.get(), "POST /api/quiz-attempts/start/{quizId}",
+                    "/api/quiz-attempts/start/" + quiz.id(), null, token);
+            if (!start.ok()) {
+                pause(random);
+                continue;
+            }
+            pause(random);
+
+            QuizAttemptRequest submission = new QuizAttemptRequest();
+            submission.setQuizId(quiz.id());
+            submission.setAnswers(SyntheticData.answers(random, quiz.questions(), options.options));
+            submission.setTimeSpent(30 + random.nextInt(300));
+            client.post(current.get(), "POST /api/quiz-attempts/submit", "/api/quiz-attempts/submit", submission, token);
+            pause(random);
+
+            if (options.scenario.equals("mixed") && random.nextInt(10) < 3) {
+                client.get(current.get(), "GET /api/quiz-attempts/my", "/api/quiz-attempts/my?limit=20", token);
+                pause(random);
+            }
+        }
+    }
+
+    /** Регистрирует пользователей (уже существующих просто логинит) и возвращает их токены. */
+    private List<String> seedUsers(LatencyRecorder recorder) throws InterruptedException {
+        String[] tokens = new String[options.users];
+        Semaphore permits = new Semaphore(options.seedConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.users; i++) {
+                int index = i;
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        seedPost(recorder, "POST /auth/register", "/auth/register", data.registerRequest(index), null);
+                        LoginRequest login = new LoginRequest();
+                        login.setUsername(data.username(index));
+                        login.setPassword(SyntheticData.PASSWORD);
+                        ApiClient.Response response = seedPost(recorder, "POST /auth/login", "/auth/login", login, null);
+                        if (response.ok()) {
+                            tokens[index] = response.body().get("token").asText();
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        List<String> result = new ArrayList<>(options.users);
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] == null) {
+                throw new IllegalStateException("Не удалось войти под пользователем " + data.username(i));
+            }
+            result.add(tokens[i]);
+        }
+        return result;
+    }
+
+    private List<SeededQuiz> seedQuizzes(LatencyRecorder recorder, List<String> tokens) throws InterruptedException {
+        SeededQuiz[] quizzes = new SeededQuiz[options.quizzes];
+        Semaphore permits = new Semaphore(options.seedConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.quizzes; i++) {
+                int index = i;
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        ApiClient.Response response = seedPost(recorder, "POST /api/quizzes", "/api/quizzes",
+                                data.quiz(index, options.questions, options.options), tokens.get(index % tokens.size()));
+                        if (response.ok()) {
+                            quizzes[index] = new SeededQuiz(response.body().get("id").asLong(), options.questions);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        List<SeededQuiz> result = new ArrayList<>(options.quizzes);
+        for (SeededQuiz quiz : quizzes) {
+            if (quiz != null) {
+                result.add(quiz);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalStateException("Не удалось создать ни одной викторины");
+        }
+        return result;
+    }
+
+    /** Запрос подготовки данных; 503 от ограничителя запросов к базе повторяется после паузы. */
+    private ApiClient.Response seedPost(LatencyRecorder recorder, String endpoint, String path, Object body, String token) {
+        for (int attempt = 1; ; attempt++) {
+            ApiClient.Response response = client.post(recorder, endpoint, path, body, token);
+            if (response.status() != 503 || attempt == SEED_ATTEMPTS) {
+                return response;
+            }
+            try {
+                Thread.sleep(Duration.ofSeconds(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return response;
+            }
+        }
+    }
+
+    private void writeReport(Map<String, Map<String, Object>> seed, double seedSeconds,
+                             Map<String, Map<String, Object>> endpoints, double measuredSeconds) throws IOException {
+        long requests = 0;
+        long errors = 0;
+        for (Map<String, Object> endpoint : endpoints.values()) {
+            requests += ((Number) endpoint.get("requests")).longValue();
+            errors += ((Number) endpoint.get("errors")).longValue();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", Instant.now().toString());
+        report.put("options", options.asMap());
+        report.put("seed", Map.of("seconds", Math.round(seedSeconds * 10) / 10.0, "endpoints", seed));
+        report.put("measuredSeconds", Math.round(measuredSeconds * 10) / 10.0);
+        report.put("requests", requests);
+        report.put("errors", errors);
+        report.put("throughputPerSecond", Math.round(requests / measuredSeconds * 10) / 10.0);
+        report.put("endpoints", endpoints);
+
+        Path path = Path.of(options.report);
+        if (path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+
+        System.out.printf("%n%-42s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "OK/s", "p50 ms", "p90 ms", "p99 ms", "Max ms");
+        endpoints.forEach((name, endpoint) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> latency = (Map<String, Object>) endpoint.get("latencyMs");
+            System.out.printf("%-42s %9s %7s %9s %9s %9s %9s %9s %9s%n", name, endpoint.get("requests"),
+                    endpoint.get("errors"), endpoint.get("throughputPerSecond"), endpoint.get("successPerSecond"),
+                    latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("max"));
+        });
+        System.out.printf("Total %d requests, %d errors, %.1f req/s over %.1f s; report written to %s%n",
+                requests, errors, requests / measuredSeconds, measuredSeconds, path.toAbsolutePath());
+    }
+
+    private void pause(Random random) {
+        if (options.thinkMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(random.nextInt(options.thinkMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return Math.max(nanos, 1) / 1e9;
+    }
+
+    /** Параметры запуска в виде --name=value. */
+    static final class Options {
+        String baseUrl = "http://localhost:8080";
+        int clients = 50;
+        int users = -1; // по умолчанию по одному на клиента
+        int quizzes = 50;
+        int questions = 10;
+        int options = 4;
+        int warmupSeconds = 10;
+        int durationSeconds = 60;
+        int thinkMs = 0;
+        int timeoutSeconds = 30;
+        int seedConcurrency = 16;
+        long seed = 42;
+        String scenario = "mixed";
+        String userPrefix = "load-user-";
+        String report = "target/loadtest-report.json";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Ожидался параметр вида --name=value: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "base-url" -> options.baseUrl = value;
+                    case "clients" -> options.clients = Integer.parseInt(value);
+                    case "users" -> options.users = Integer.parseInt(value);
+                    case "quizzes" -> options.quizzes = Integer.parseInt(value);
+                    case "questions" -> options.questions = Integer.parseInt(value);
+                    case "options" -> options.options = Integer.parseInt(value);
+                    case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "think-ms" -> options.thinkMs = Integer.parseInt(value);
+                    case "timeout" -> options.timeoutSeconds = Integer.parseInt(value);
+                    case "seed-concurrency" -> options.seedConcurrency = Integer.parseInt(value);
+                    case "seed" -> options.seed = Long.parseLong(value);
+                    case "scenario" -> options.scenario = value;
+                    case "user-prefix" -> options.userPrefix = value;
+                    case "report" -> options.report = value;
+                    default -> throw new IllegalArgumentException("Неизвестный параметр: " + name);
+                }
+            }
+            if (options.users < 0) {
+                options.users = options.clients;
+            }
+            if (options.users < options.clients) {
+                // Два клиента под одним пользователем делили бы активную попытку на одной викторине
+                throw new IllegalArgumentException("--users должно быть не меньше --clients");
+            }
+            if (!options.scenario.equals("mixed") && !options.scenario.equals("submit")) {
+                throw new IllegalArgumentException("Сценарий должен быть mixed или submit: " + options.scenario);
+            }
+            return options;
+        }
+
+        Map<String, Object> asMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("baseUrl", baseUrl);
+            map.put("scenario", scenario);
+            map.put("clients", clients);
+            map.put("users", users);
+            map.put("quizzes", quizzes);
+            map.put("questions", questions);
+            map.put("options", options);
+            map.put("warmupSeconds", warmupSeconds);
+            map.put("durationSeconds", durationSeconds);
+            map.put("thinkMs", thinkMs);
+            map.put("seed", seed);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.utalieva.victorina.loadtest;
+
+import ru.utalieva.victorina.model.dto.OptionDTO;
+import ru.utalieva.victorina.model.dto.QuestionDTO;
+import ru.utalieva.victorina.model.dto.QuizCreateDTO;
+import ru.utalieva.victorina.model.dto.RegisterRequest;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Пользователи, викторины и ответы для нагрузочного теста. Имена пользователей стабильны между
+ * запусками (повторный прогон входит в уже созданные аккаунты), содержимое викторин
+ * определяется seed.
+ */
+final class SyntheticData {
+    static final String PASSWORD = "load-test-password";
+
+    private static final String[] CATEGORIES = {"Наука", "История", "География", "Кино", "Музыка", "Спорт"};
+    private static final String[] DIFFICULTIES = {"easy", "medium", "hard"};
+    private static final String[] TAGS = {"нагрузка", "синтетика", "тест", "общие знания", "для всех"};
+
+    private final Random random;
+    private final String userPrefix;
+
+    SyntheticData(long seed, String userPrefix) {
+        this.random = new Random(seed);
+        this.userPrefix = userPrefix;
+    }
+
+    String username(int index) {
+        return userPrefix + index;
+    }
+
+    RegisterRequest registerRequest(int index) {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username(index));
+        request.setPassword(PASSWORD);
+        request.setEmail(username(index) + "@load.test");
+        return request;
+    }
+
+    synchronized QuizCreateDTO quiz(int index, int questions, int options) {
+        QuizCreateDTO quiz = new QuizCreateDTO();
+        quiz.setTitle("Нагрузочная викторина " + index + " о том, что " + CATEGORIES[index % CATEGORIES.length].toLowerCase());
+        quiz.setDescription("Синтетическая викторина из " + questions + " вопросов для нагрузочного теста");
+        quiz.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        quiz.setDifficulty(DIFFICULTIES[random.nextInt(DIFFICULTIES.length)]);
+        quiz.setQuizType(QuizType.STANDARD);
+        quiz.setPublic(true);
+        quiz.setTags(new ArrayList<>(List.of(TAGS[random.nextInt(TAGS.length)], TAGS[random.nextInt(TAGS.length)])));
+
+        List<QuestionDTO> quizQuestions = new ArrayList<>(questions);
+        for (int q = 0; q < questions; q++) {
+            QuestionDTO question = new QuestionDTO();
+            question.setQuestion("Вопрос " + (q + 1) + " викторины " + index + ": какой вариант верный?");
+            question.setCorrectIndex(random.nextInt(options));
+            List<OptionDTO> questionOptions = new ArrayList<>(options);
+            for (int o = 0; o < options; o++) {
+                OptionDTO option = new OptionDTO();
+                option.setType("text");
+                option.setContent("Вариант " + (o + 1));
+                questionOptions.add(option);
+            }
+            question.setOptions(questionOptions);
+            quizQuestions.add(question);
+        }
+        quiz.setQuestions(quizQuestions);
+        return quiz;
+    }
+
+    /** Ответы на все вопросы, как их отправляет фронтенд: номер вопроса -> номер варианта. */
+    static Map<Integer, Integer> answers(Random random, int questions, int options) {
+        Map<Integer, Integer> answers = new HashMap<>();
+        for (int q = 0; q < questions; q++) {
+            answers.put(q, random.nextInt(options));
+        }
+        return answers;
+    }
+}
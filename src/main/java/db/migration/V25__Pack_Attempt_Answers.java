@@ -0,0 +1,140 @@
+package db.migration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Переводит quiz_attempts.user_answers из JSONB {"номер вопроса": номер варианта} в BYTEA:
+ * байт i - ответ на вопрос i, номер варианта + 1, 0 - ответа нет. Формат повторён здесь, а не взят
+ * из AnswerCodec: миграция должна писать те же байты, даже если кодек приложения потом изменится.
+ * <p>
+ * Строки переписываются пачками, каждая пачка коммитится отдельно, чтобы большая таблица
+ * не блокировалась одной длинной транзакцией. Поэтому миграция не атомарна: при сбое Flyway
+ * записывает её как неудачную, и перед повторным запуском нужен {@code flyway repair}.
+ * Повторный запуск безопасен при любом промежуточном состоянии: уже упакованные строки
+ * пропускаются, а если столбец уже заменён, миграция ничего не делает.
+ */
+public class V25__Pack_Attempt_Answers extends BaseJavaMigration {
+    private static final Logger logger = LoggerFactory.getLogger(V25__Pack_Attempt_Answers.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_OPTION_INDEX = 254;
+    private static final int MAX_QUESTIONS = Short.MAX_VALUE;
+    private static final TypeReference<Map<String, Integer>> ANSWERS_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(true);
+            if ("bytea".equals(columnType(connection, "user_answers"))) {
+                // Столбец заменён прошлым запуском, упавшим уже после переименования
+                logger.info("quiz_attempts.user_answers is already packed");
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE quiz_attempts ADD COLUMN IF NOT EXISTS user_answers_packed BYTEA");
+            }
+
+            long rows = 0;
+            long lastId = 0;
+            int batch;
+            do {
+                connection.setAutoCommit(false);
+                batch = 0;
+                try (PreparedStatement select = connection.prepareStatement("SELECT id, user_answers::text " +
+                        "FROM quiz_attempts WHERE id > ? AND user_answers IS NOT NULL AND user_answers_packed IS NULL " +
+                        "ORDER BY id LIMIT ?");
+                     PreparedStatement update = connection.prepareStatement(
+                             "UPDATE quiz_attempts SET user_answers_packed = ? " +
+                                     "WHERE id = ? AND user_answers_packed IS NULL")) {
+                    select.setLong(1, lastId);
+                    select.setInt(2, BATCH_SIZE);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            lastId = rs.getLong(1);
+                            update.setBytes(1, pack(lastId, rs.getString(2)));
+                            update.setLong(2, lastId);
+                            update.addBatch();
+                            batch++;
+                        }
+                    }
+                    if (batch > 0) {
+                        update.executeBatch();
+                    }
+                }
+                connection.commit();
+                rows += batch;
+            } while (batch == BATCH_SIZE);
+            logger.info("Packed answers of {} quiz attempts", rows);
+
+            // Замена столбца одной транзакцией, чтобы схема не осталась без user_answers
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE quiz_attempts DROP COLUMN user_answers");
+                statement.execute("ALTER TABLE quiz_attempts RENAME COLUMN user_answers_packed TO user_answers");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String columnType(Connection connection, String column) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT data_type FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'quiz_attempts' AND column_name = ?")) {
+            select.setString(1, column);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private byte[] pack(long attemptId, String json) {
+        Map<Integer, Integer> answers = new HashMap<>();
+        try {
+            objectMapper.readValue(json, ANSWERS_TYPE).forEach((key, optionIndex) -> {
+                int questionIndex = Integer.parseInt(key);
+                if (questionIndex >= 0 && questionIndex < MAX_QUESTIONS && optionIndex != null
+                        && optionIndex >= 0 && optionIndex <= MAX_OPTION_INDEX) {
+                    answers.put(questionIndex, optionIndex);
+                }
+            });
+        } catch (Exception e) {
+            answers.clear();
+            logger.warn("Attempt {} has unreadable answers, they are dropped: {}", attemptId, json);
+        }
+        int length = 0;
+        for (int questionIndex : answers.keySet()) {
+            length = Math.max(length, questionIndex + 1);
+        }
+        byte[] packed = new byte[length];
+        answers.forEach((questionIndex, optionIndex) -> packed[questionIndex] = (byte) (optionIndex + 1));
+        return packed;
+    }
+}
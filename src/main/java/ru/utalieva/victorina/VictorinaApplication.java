@@ -2,8 +2,10 @@ package ru.utalieva.victorina;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class VictorinaApplication {
 
 	public static void main(String[] args) {
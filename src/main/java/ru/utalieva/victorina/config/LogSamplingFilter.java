@@ -0,0 +1,43 @@
+package ru.utalieva.victorina.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Пропускает в лог в среднем одно из rate событий ниже WARN от логгеров с префиксом loggerPrefix,
+ * остальные отбрасывает до форматирования. Подключается в logback-spring.xml для профиля prod: логи
+ * на каждый запрос (вход, создание викторин) остаются видны, но их объём не растёт вместе с нагрузкой.
+ * Выборка случайная, а не каждое rate-е: у запроса с двумя строками лога счётчик при чётном rate
+ * всегда пропускал бы одну и ту же. WARN и ERROR проходят всегда, проверки isDebugEnabled()
+ * выборку не расходуют.
+ */
+public class LogSamplingFilter extends TurboFilter {
+    private String loggerPrefix = "";
+    private int rate = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || rate <= 1 || level.isGreaterOrEqual(Level.WARN)
+                || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Уровень сверяем сами: logger.isEnabledFor снова вызвал бы турбофильтры
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextInt(rate) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+}
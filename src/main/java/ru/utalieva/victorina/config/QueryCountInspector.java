@@ -0,0 +1,32 @@
+package ru.utalieva.victorina.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы Hibernate в текущем потоке, пока идёт подсчёт (см. {@link QueryCountInterceptor}).
+ * Подключается свойством hibernate.session_factory.statement_inspector; Hibernate создаёт его сам,
+ * поэтому счётчик хранится в ThreadLocal. Запросы через JdbcTemplate сюда не попадают.
+ */
+public class QueryCountInspector implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+        return sql;
+    }
+
+    static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    /** Останавливает подсчёт и возвращает число запросов, -1 если подсчёт не запускался. */
+    static int stop() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? -1 : counter[0];
+    }
+}
@@ -0,0 +1,52 @@
+package ru.utalieva.victorina.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Число SQL-запросов Hibernate на обработку запроса, по эндпоинтам:
+ * http.server.requests.queries{method, uri}. Среднее - sum / count, худший запрос - max.
+ * У асинхронного запроса (StreamingResponseBody, SseEmitter) afterCompletion в потоке запроса
+ * не вызывается: счётчик снимается в afterConcurrentHandlingStarted, чтобы не остаться в потоке Tomcat.
+ * Запросы из асинхронной части в метрику не попадают.
+ */
+@Component
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    public QueryCountInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCountInspector.start();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCountInspector.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        int queries = QueryCountInspector.stop();
+        if (queries < 0) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("http.server.requests.queries")
+                .description("SQL-запросы Hibernate на один HTTP-запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(queries);
+    }
+}
@@ -37,11 +37,20 @@ public class SecurityConfig {
             .and()
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/auth/**").permitAll()
+                // Проверка живости без токена; метрики Prometheus раскрывают нагрузку и эндпоинты - только администратору
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
+                // Иначе совпали бы с /api/quizzes/{id}
+                .requestMatchers("/api/quizzes/import", "/api/quizzes/export").authenticated()
                 .requestMatchers(
                     "/api/quizzes",
-                    "/api/quizzes/{id}"
+                    "/api/quizzes/search",
+                    "/api/quizzes/{id}",
+                    "/api/quizzes/{id}/leaderboard",
+                    "/api/quizzes/{id}/stats"
                 ).permitAll()
                 .requestMatchers("/api/quiz-attempts/**").authenticated()
+                .requestMatchers("/api/live-rooms/**").authenticated()
                 .requestMatchers("/api/quizzes/my").authenticated()
                 .requestMatchers("/api/quizzes/personality").authenticated()
                 .anyRequest().authenticated()
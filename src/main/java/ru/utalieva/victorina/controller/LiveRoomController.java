@@ -0,0 +1,77 @@
+package ru.utalieva.victorina.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.utalieva.victorina.model.dto.AnswerRequest;
+import ru.utalieva.victorina.model.dto.AnswerResultDTO;
+import ru.utalieva.victorina.model.dto.ErrorResponse;
+import ru.utalieva.victorina.model.dto.LiveRoomDTO;
+import ru.utalieva.victorina.security.UserPrincipal;
+import ru.utalieva.victorina.service.LiveRoomService;
+
+@RestController
+@RequestMapping("/api/live-rooms")
+@RequiredArgsConstructor
+public class LiveRoomController {
+    private final LiveRoomService liveRoomService;
+
+    @PostMapping
+    public ResponseEntity<LiveRoomDTO> createRoom(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestParam Long quizId) {
+        return ResponseEntity.ok(liveRoomService.createRoom(quizId, userPrincipal.getId()));
+    }
+
+    @GetMapping("/{code}")
+    public ResponseEntity<LiveRoomDTO> getRoom(@PathVariable String code) {
+        return ResponseEntity.ok(liveRoomService.getRoom(code));
+    }
+
+    @GetMapping(value = "/{code}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String code) {
+        return liveRoomService.subscribe(code, userPrincipal.getId());
+    }
+
+    @PostMapping("/{code}/next")
+    public ResponseEntity<?> nextQuestion(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String code) {
+        try {
+            return ResponseEntity.ok(liveRoomService.nextQuestion(code, userPrincipal.getId()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{code}/finish")
+    public ResponseEntity<?> finish(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String code) {
+        try {
+            return ResponseEntity.ok(liveRoomService.finish(code, userPrincipal.getId()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{code}/answers/{questionIndex}")
+    public ResponseEntity<?> answer(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String code,
+            @PathVariable int questionIndex,
+            @RequestBody AnswerRequest request) {
+        try {
+            AnswerResultDTO result = liveRoomService.answer(
+                    code, userPrincipal.getId(), questionIndex, request.getOptionIndex());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+}
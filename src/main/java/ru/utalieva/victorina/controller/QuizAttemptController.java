@@ -4,13 +4,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import ru.utalieva.victorina.model.dto.AnswerRequest;
+import ru.utalieva.victorina.model.dto.AnswerResultDTO;
+import ru.utalieva.victorina.model.dto.AttemptSummaryDTO;
+import ru.utalieva.victorina.model.dto.CursorPage;
+import ru.utalieva.victorina.model.dto.ErrorResponse;
 import ru.utalieva.victorina.model.dto.QuizAttemptRequest;
 import ru.utalieva.victorina.model.dto.QuizAttemptResponse;
 import ru.utalieva.victorina.security.UserPrincipal;
 import ru.utalieva.victorina.service.QuizAttemptService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/quiz-attempts")
 @RequiredArgsConstructor
@@ -33,10 +36,39 @@ public class QuizAttemptController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/{attemptId}/answers/{questionIndex}")
+    public ResponseEntity<?> answerQuestion(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable Long attemptId,
+            @PathVariable int questionIndex,
+            @RequestBody AnswerRequest request) {
+        try {
+            AnswerResultDTO result = quizAttemptService.answerQuestion(
+                    userPrincipal.getId(), attemptId, questionIndex, request.getOptionIndex());
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/my")
-    public ResponseEntity<List<QuizAttemptResponse>> getUserAttempts(
-            @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        List<QuizAttemptResponse> attempts = quizAttemptService.getUserAttempts(userPrincipal.getId());
-        return ResponseEntity.ok(attempts);
+    public ResponseEntity<?> getUserAttempts(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            CursorPage<AttemptSummaryDTO> attempts = quizAttemptService.getUserAttempts(userPrincipal.getId(), cursor, limit);
+            return ResponseEntity.ok(attempts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{attemptId}")
+    public ResponseEntity<QuizAttemptResponse> getAttempt(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable Long attemptId) {
+        QuizAttemptResponse response = quizAttemptService.getAttempt(userPrincipal.getId(), attemptId);
+        return ResponseEntity.ok(response);
     }
 } 
\ No newline at end of file
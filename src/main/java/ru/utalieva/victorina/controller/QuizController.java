@@ -2,18 +2,26 @@ package ru.utalieva.victorina.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.utalieva.victorina.model.dto.*;
 import ru.utalieva.victorina.model.entity.Quiz;
-import ru.utalieva.victorina.model.entity.User;
 import ru.utalieva.victorina.model.enumination.QuizType;
 import ru.utalieva.victorina.security.UserPrincipal;
+import ru.utalieva.victorina.service.LeaderboardService;
+import ru.utalieva.victorina.service.QuizBulkService;
+import ru.utalieva.victorina.service.QuizDetailCache;
 import ru.utalieva.victorina.service.QuizService;
-import ru.utalieva.victorina.service.UserService;
+import ru.utalieva.victorina.service.QuizStatsService;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.HashMap;
@@ -26,20 +34,27 @@ import java.util.ArrayList;
 public class QuizController {
     private static final Logger logger = LoggerFactory.getLogger(QuizController.class);
     private final QuizService quizService;
-    private final UserService userService;
+    private final QuizDetailCache quizDetailCache;
+    private final LeaderboardService leaderboardService;
+    private final QuizStatsService quizStatsService;
+    private final QuizBulkService quizBulkService;
 
-    public QuizController(QuizService quizService, UserService userService) {
+    public QuizController(QuizService quizService, QuizDetailCache quizDetailCache,
+                          LeaderboardService leaderboardService, QuizStatsService quizStatsService,
+                          QuizBulkService quizBulkService) {
         this.quizService = quizService;
-        this.userService = userService;
+        this.quizDetailCache = quizDetailCache;
+        this.leaderboardService = leaderboardService;
+        this.quizStatsService = quizStatsService;
+        this.quizBulkService = quizBulkService;
     }
 
     @PostMapping
     @Transactional
     public ResponseEntity<?> createQuiz(@RequestBody QuizCreateDTO request, @AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            User user = userService.findById(userPrincipal.getId());
-            logger.info("Creating quiz for user: {}", user.getUsername());
-            Quiz quiz = quizService.createQuiz(request, user.getUsername());
+            logger.info("Creating quiz for user: {}", userPrincipal.getUsername());
+            Quiz quiz = quizService.createQuiz(request, userPrincipal.getUsername());
             return ResponseEntity.ok(QuizDTO.fromEntity(quiz));
         } catch (Exception e) {
             logger.error("Error creating quiz: {}", e.getMessage(), e);
@@ -48,13 +63,43 @@ public class QuizController {
         }
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> importQuizzes(InputStream body, @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            logger.info("Importing quizzes for user: {}", userPrincipal.getUsername());
+            return ResponseEntity.ok(quizBulkService.importQuizzes(body, userPrincipal.getUsername()));
+        } catch (Exception e) {
+            logger.error("Error importing quizzes: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Ошибка при импорте викторин: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportQuizzes(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        logger.info("Exporting quizzes for user: {}", userPrincipal.getUsername());
+        // Ошибку после начала ответа клиенту уже не передать: поток просто обрывается, а причина пишется в лог
+        Long userId = userPrincipal.getId();
+        StreamingResponseBody body = output -> quizBulkService.exportQuizzes(output, userId);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"quizzes.ndjson\"")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+
     @GetMapping
-    @Transactional(readOnly = true)
-    public ResponseEntity<?> getAllQuizzes() {
+    public ResponseEntity<?> getAllQuizzes(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String difficulty,
+            @RequestParam(required = false) QuizType quizType,
+            @RequestParam(required = false) Boolean isPublic,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
         try {
-            logger.info("Getting all quizzes");
-            List<QuizDTO> quizDTOs = quizService.getAllQuizzes();
-            return ResponseEntity.ok(quizDTOs);
+            logger.debug("Getting quiz catalog page, cursor: {}", cursor);
+            CursorPage<QuizSummaryDTO> page = quizService.getQuizCatalog(
+                    category, difficulty, quizType, isPublic, cursor, limit);
+            return ResponseEntity.ok(page);
         } catch (Exception e) {
             logger.error("Error getting all quizzes: {}", e.getMessage(), e);
             return ResponseEntity.badRequest()
@@ -62,6 +107,24 @@ public class QuizController {
         }
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<?> searchQuizzes(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String difficulty,
+            @RequestParam(required = false) String tag,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            logger.debug("Searching quizzes: q={}, category={}, difficulty={}, tag={}", q, category, difficulty, tag);
+            return ResponseEntity.ok(quizService.searchQuizzes(q, category, difficulty, tag, page, limit));
+        } catch (Exception e) {
+            logger.error("Error searching quizzes: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Ошибка при поиске викторин: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/my")
     @Transactional(readOnly = true)
     public ResponseEntity<?> getMyQuizzes(@AuthenticationPrincipal UserPrincipal userPrincipal) {
@@ -71,16 +134,9 @@ public class QuizController {
                 return ResponseEntity.badRequest()
                     .body(new ErrorResponse("Пользователь не аутентифицирован"));
             }
-            
-            User user = userService.findById(userPrincipal.getId());
-            if (user == null) {
-                logger.error("User not found for id: {}", userPrincipal.getId());
-                return ResponseEntity.badRequest()
-                    .body(new ErrorResponse("Пользователь не найден"));
-            }
-            
-            logger.info("Getting quizzes for user: {}", user.getUsername());
-            List<QuizDTO> quizDTOs = quizService.getQuizzesByAuthor(user.getUsername());
+
+            logger.debug("Getting quizzes for user: {}", userPrincipal.getUsername());
+            List<QuizDTO> quizDTOs = quizService.getQuizzesByAuthor(userPrincipal.getUsername());
             return ResponseEntity.ok(quizDTOs);
         } catch (Exception e) {
             logger.error("Error getting user quizzes: {}", e.getMessage(), e);
@@ -90,12 +146,17 @@ public class QuizController {
     }
 
     @GetMapping("/{id}")
-    @Transactional(readOnly = true)
-    public ResponseEntity<?> getQuizById(@PathVariable Long id) {
+    public ResponseEntity<?> getQuizById(@PathVariable Long id, WebRequest webRequest) {
         try {
-            logger.info("Getting quiz by id: {}", id);
-            Quiz quiz = quizService.getQuizById(id);
-            return ResponseEntity.ok(QuizDTO.fromEntity(quiz));
+            logger.debug("Getting quiz by id: {}", id);
+            QuizDetailCache.CachedQuiz quiz = quizDetailCache.get(id);
+            if (webRequest.checkNotModified(quiz.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(quiz.etag()).build();
+            }
+            return ResponseEntity.ok()
+                .eTag(quiz.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(quiz.json());
         } catch (Exception e) {
             logger.error("Error getting quiz by id {}: {}", id, e.getMessage(), e);
             return ResponseEntity.badRequest()
@@ -103,15 +164,53 @@ public class QuizController {
         }
     }
 
+    @GetMapping("/{id}/leaderboard")
+    public ResponseEntity<?> getLeaderboard(@PathVariable Long id, @RequestParam(defaultValue = "10") int limit) {
+        try {
+            logger.debug("Getting leaderboard for quiz: {}", id);
+            return ResponseEntity.ok(leaderboardService.getLeaderboard(id, limit));
+        } catch (Exception e) {
+            logger.error("Error getting leaderboard for quiz {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Ошибка при получении рейтинга: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<?> getStats(@PathVariable Long id) {
+        try {
+            logger.debug("Getting stats for quiz: {}", id);
+            return ResponseEntity.ok(quizStatsService.getStats(id));
+        } catch (Exception e) {
+            logger.error("Error getting stats for quiz {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Ошибка при получении статистики: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/stats/rebuild")
+    public ResponseEntity<?> rebuildStats(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            logger.info("Rebuilding stats for quiz {} by user: {}", id, userPrincipal.getUsername());
+            quizStatsService.rebuild(id, userPrincipal.getId());
+            return ResponseEntity.ok(quizStatsService.getStats(id));
+        } catch (Exception e) {
+            logger.error("Error rebuilding stats for quiz {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Ошибка при пересчёте статистики: " + e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/{id}")
     @Transactional
     public ResponseEntity<?> deleteQuiz(
             @PathVariable Long id,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            User user = userService.findById(userPrincipal.getId());
-            logger.info("Deleting quiz {} by user: {}", id, user.getUsername());
-            quizService.deleteQuiz(id, user);
+            logger.info("Deleting quiz {} by user: {}", id, userPrincipal.getUsername());
+            quizService.deleteQuiz(id, userPrincipal.getId());
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             logger.error("Error deleting quiz {}: {}", id, e.getMessage(), e);
@@ -126,8 +225,7 @@ public class QuizController {
             @RequestBody PersonalityQuizCreateDTO request,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            User user = userService.findById(userPrincipal.getId());
-            logger.info("Creating personality quiz for user: {}", user.getUsername());
+            logger.info("Creating personality quiz for user: {}", userPrincipal.getUsername());
             
             // Преобразуем PersonalityQuizCreateDTO в QuizCreateDTO
             QuizCreateDTO quizDTO = new QuizCreateDTO();
@@ -154,12 +252,8 @@ public class QuizController {
                             o.setContent(po.getContent());
                             o.setType("TEXT"); // Для личностного теста всегда текст
                             
-                            // Используем traits из PersonalityOptionDTO
-                            Map<String, Integer> traits = new HashMap<>();
-                            if (po.getTraits() != null && po.getTraits().get("resultIndex") != null) {
-                                traits.put("resultIndex", po.getTraits().get("resultIndex"));
-                            }
-                            o.setTraits(traits);
+                            // Характеристики варианта целиком: именованные и голос resultIndex
+                            o.setTraits(po.getTraits() != null ? new HashMap<>(po.getTraits()) : new HashMap<>());
                             
                             return o;
                         })
@@ -178,12 +272,13 @@ public class QuizController {
                     result.put("title", pr.getTitle());
                     result.put("description", pr.getDescription());
                     result.put("image", pr.getImage());
+                    result.put("personalityTraits", pr.getTraits());
                     return result;
                 })
                 .collect(Collectors.toList());
             quizDTO.setResults(results);
 
-            Quiz quiz = quizService.createQuiz(quizDTO, user.getUsername());
+            Quiz quiz = quizService.createQuiz(quizDTO, userPrincipal.getUsername());
             return ResponseEntity.ok(QuizDTO.fromEntity(quiz));
         } catch (Exception e) {
             logger.error("Error creating personality quiz: {}", e.getMessage(), e);
@@ -0,0 +1,60 @@
+package ru.utalieva.victorina.model.converter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Упакованные ответы попытки: байт i - ответ на вопрос i, номер варианта + 1, 0 - ответа нет.
+ * Вместо JSONB вида {"0": 1, "1": 3} строка хранит по одному байту на вопрос.
+ */
+public final class AnswerCodec {
+    public static final int MAX_OPTION_INDEX = 254;
+    public static final int MAX_QUESTIONS = Short.MAX_VALUE;
+
+    private AnswerCodec() {
+    }
+
+    /**
+     * @param answers номер вопроса -> номер варианта; null-значения считаются пропущенными вопросами
+     */
+    public static byte[] encode(Map<Integer, Integer> answers) {
+        if (answers == null) {
+            return null;
+        }
+        int length = 0;
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            Integer questionIndex = answer.getKey();
+            if (questionIndex == null || questionIndex < 0 || questionIndex >= MAX_QUESTIONS) {
+                throw new IllegalArgumentException("Недопустимый номер вопроса: " + questionIndex);
+            }
+            length = Math.max(length, questionIndex + 1);
+        }
+
+        byte[] packed = new byte[length];
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            Integer optionIndex = answer.getValue();
+            if (optionIndex == null) {
+                continue;
+            }
+            if (optionIndex < 0 || optionIndex > MAX_OPTION_INDEX) {
+                throw new IllegalArgumentException("Недопустимый номер варианта: " + optionIndex);
+            }
+            packed[answer.getKey()] = (byte) (optionIndex + 1);
+        }
+        return packed;
+    }
+
+    public static Map<Integer, Integer> decode(byte[] packed) {
+        if (packed == null) {
+            return null;
+        }
+        Map<Integer, Integer> answers = new HashMap<>();
+        for (int questionIndex = 0; questionIndex < packed.length; questionIndex++) {
+            int value = packed[questionIndex] & 0xFF;
+            if (value != 0) {
+                answers.put(questionIndex, value - 1);
+            }
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.utalieva.victorina.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Map;
+
+/**
+ * Хранит ответы попытки в BYTEA в формате {@link AnswerCodec}.
+ */
+@Converter
+public class AnswersConverter implements AttributeConverter<Map<Integer, Integer>, byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(Map<Integer, Integer> answers) {
+        return AnswerCodec.encode(answers);
+    }
+
+    @Override
+    public Map<Integer, Integer> convertToEntityAttribute(byte[] packed) {
+        return AnswerCodec.decode(packed);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.Data;
+
+@Data
+public class AnswerRequest {
+    private Integer optionIndex;
+}
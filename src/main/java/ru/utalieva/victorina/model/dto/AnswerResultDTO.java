@@ -0,0 +1,12 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.Data;
+
+@Data
+public class AnswerResultDTO {
+    private Integer questionIndex;
+    private Boolean correct; // null для personality quiz
+    private Integer score; // Текущий счёт, null для personality quiz
+    private Integer answeredCount;
+    private Integer totalQuestions;
+}
@@ -0,0 +1,7 @@
+package ru.utalieva.victorina.model.dto;
+
+/**
+ * Результат завершённой попытки для рейтинга: без ответов и без связанных сущностей.
+ */
+public record AttemptScore(Long attemptId, Long userId, Integer score, Integer timeSpent) {
+}
@@ -0,0 +1,27 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка истории попыток пользователя. Собирается одним запросом вместе с названием
+ * викторины; разбор ответов отдаётся только в GET /api/quiz-attempts/{attemptId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttemptSummaryDTO {
+    private Long attemptId;
+    private Long quizId;
+    private String quizTitle;
+    private QuizType quizType;
+    private Integer score;
+    private Integer totalQuestions;
+    private Integer timeSpent;
+    private LocalDateTime endTime;
+    private String personalityResultTitle; // Только для personality quiz
+}
@@ -0,0 +1,34 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // null, если это последняя страница
+    private boolean hasNext;
+
+    /** Сколько строк запрашивать для страницы: на одну больше, чтобы узнать, есть ли следующая. */
+    public static int fetchSize(int pageSize) {
+        return pageSize + 1;
+    }
+
+    /**
+     * Страница из строк, запрошенных с {@link #fetchSize(int)}: лишняя строка в ответ не попадает,
+     * курсор следующей страницы берётся с последней отданной.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, KeysetCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, cursorOf.apply(items.get(pageSize - 1)).encode(), true);
+    }
+}
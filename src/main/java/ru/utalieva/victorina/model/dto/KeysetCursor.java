@@ -0,0 +1,38 @@
+package ru.utalieva.victorina.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в выборке, упорядоченной по (timestamp DESC, id DESC).
+ * Клиенту отдаётся в виде непрозрачной base64-строки.
+ */
+public record KeysetCursor(LocalDateTime timestamp, Long id) {
+
+    /** Позиция "до начала" выборки: любая запись идёт после неё. */
+    public static final KeysetCursor FIRST_PAGE =
+            new KeysetCursor(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryDTO {
+    private Integer position;
+    private Long userId;
+    private String username;
+    private Integer score;
+    private Integer timeSpent; // в секундах
+}
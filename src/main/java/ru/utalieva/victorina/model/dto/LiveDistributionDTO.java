@@ -0,0 +1,18 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Распределение ответов на текущий вопрос живой комнаты.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveDistributionDTO {
+    private Integer questionIndex;
+    private int[] counts; // Число ответов по номеру варианта
+    private Integer answered;
+    private Integer participantCount;
+}
@@ -0,0 +1,22 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.utalieva.victorina.model.enumination.LiveRoomState;
+
+/**
+ * Состояние живой комнаты. Тексты вопросов клиент берёт один раз из GET /api/quizzes/{quizId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveRoomDTO {
+    private String code;
+    private Long quizId;
+    private String quizTitle;
+    private LiveRoomState state;
+    private Integer questionIndex; // -1 до первого вопроса
+    private Integer totalQuestions;
+    private Integer participantCount;
+}
@@ -0,0 +1,15 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionStatsDTO {
+    private Integer questionIndex;
+    private Long answered;
+    private Long correct; // null для personality quiz
+    private Double correctRate; // null для personality quiz или без ответов
+}
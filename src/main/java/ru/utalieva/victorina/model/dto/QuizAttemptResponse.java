@@ -1,6 +1,8 @@
 package ru.utalieva.victorina.model.dto;
 
 import lombok.Data;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +17,8 @@ public class QuizAttemptResponse {
     private Map<Integer, Boolean> answers; // questionIndex -> isCorrect
     private List<String> correctAnswers; // Только для завершенной викторины
     private Boolean isCompleted;
+    private Boolean expired; // Время вышло: засчитаны только ответы, данные до дедлайна
+    private LocalDateTime deadline; // Когда закончится время, null для викторины без ограничения
     private Integer position; // Позиция в рейтинге
     private QuizResultDTO personalityResult; // Результат для personality quiz
 } 
\ No newline at end of file
@@ -5,6 +5,7 @@ import ru.utalieva.victorina.model.entity.Quiz;
 import ru.utalieva.victorina.model.enumination.QuizType;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,7 +35,9 @@ public class QuizDTO {
         dto.setQuizType(quiz.getQuizType());
         dto.setDifficulty(quiz.getDifficulty());
         dto.setTimeDuration(quiz.getTimeDuration());
-        dto.setTags(quiz.getTags());
+        if (quiz.getTags() != null) {
+            dto.setTags(new ArrayList<>(quiz.getTags()));
+        }
         dto.setPublic(quiz.isPublic());
         dto.setAuthorId(quiz.getAuthor().getId());
         dto.setAuthorUsername(quiz.getAuthor().getUsername());
@@ -0,0 +1,27 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class QuizImportReportDTO {
+    private long lines;
+    private long imported;
+    private long failed;
+    private List<LineError> errors = new ArrayList<>(); // только первые ошибки, всего их failed
+    private long elapsedMs;
+    private long quizzesPerSecond;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineError {
+        private long line;
+        private String message;
+    }
+}
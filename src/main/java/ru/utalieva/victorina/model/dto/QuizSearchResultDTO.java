@@ -0,0 +1,23 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Страница результатов поиска, упорядоченная по релевантности, и число найденных викторин
+ * по каждому значению фасетов: facets.category, facets.difficulty, facets.tag.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizSearchResultDTO {
+    private List<QuizSummaryDTO> items;
+    private long total;
+    private int page;
+    private boolean hasNext;
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,22 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Статистика викторины из сводных таблиц. Средние и медиана считаются по отправленным попыткам,
+ * доля завершения - отправленные среди всех закрытых, включая истёкшие по времени.
+ */
+@Data
+public class QuizStatsDTO {
+    private Long quizId;
+    private long submitted;
+    private long expired;
+    private Double completionRate;
+    private Double averageScore; // null для personality quiz
+    private Double averageScorePercent; // null для personality quiz
+    private Double averageTimeSpent; // в секундах
+    private Integer medianTimeSpent; // в секундах, оценка по гистограмме
+    private List<QuestionStatsDTO> questions;
+}
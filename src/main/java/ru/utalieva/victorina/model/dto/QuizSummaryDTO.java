@@ -0,0 +1,31 @@
+package ru.utalieva.victorina.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Облегчённое представление викторины для каталога: без вопросов и результатов,
+ * только их количество. Заполняется одним SQL-запросом через конструктор в JPQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizSummaryDTO {
+    private Long id;
+    private String title;
+    private String description;
+    private String category;
+    private QuizType quizType;
+    private String difficulty;
+    private Integer timeDuration;
+    private boolean isPublic;
+    private Long authorId;
+    private String authorUsername;
+    private LocalDateTime createdAt;
+    private Long questionCount;
+    private Long resultCount;
+}
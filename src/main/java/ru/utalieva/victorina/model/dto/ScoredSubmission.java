@@ -0,0 +1,26 @@
+package ru.utalieva.victorina.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Посчитанная в памяти завершённая попытка: всё, что нужно вставить в quiz_attempts
+ * и вернуть клиенту. В режиме batched эта же запись попадает в журнал отправок.
+ *
+ * @param personalityResultId результат личностного теста или null
+ * @param expired             попытку завершил сервер по истечении времени
+ * @param ranked              попадает ли попытка в рейтинг (стандартная викторина)
+ */
+public record ScoredSubmission(Long attemptId,
+                               Long userId,
+                               Long quizId,
+                               int score,
+                               int totalQuestions,
+                               int timeSpent,
+                               LocalDateTime startTime,
+                               LocalDateTime endTime,
+                               Map<Integer, Integer> answers,
+                               Long personalityResultId,
+                               boolean expired,
+                               boolean ranked) {
+}
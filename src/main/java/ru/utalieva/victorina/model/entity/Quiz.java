@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import ru.utalieva.victorina.model.enumination.QuizType;
 
 import java.time.LocalDateTime;
@@ -11,11 +13,22 @@ import java.util.List;
 
 @Entity
 @Table(name = "quizzes")
+@NamedEntityGraphs({
+        // Полная викторина для QuizDTO: автор и вопросы, остальное догружается подзапросами
+        @NamedEntityGraph(name = "Quiz.detail", attributeNodes = {
+                @NamedAttributeNode("author"),
+                @NamedAttributeNode("questions")
+        }),
+        // Прохождение и подсчёт результата: вопросы без автора
+        @NamedEntityGraph(name = "Quiz.play", attributeNodes = @NamedAttributeNode("questions"))
+})
 @Data
 @NoArgsConstructor
 public class Quiz {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Номера выдаются блоками по 50 (INCREMENT BY 50 в V29): вставки викторины с вопросами идут JDBC-пачками
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quizzes_seq")
+    @SequenceGenerator(name = "quizzes_seq", sequenceName = "quizzes_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -40,6 +53,7 @@ public class Quiz {
     private boolean isPublic;
 
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(name = "quiz_tags", joinColumns = @JoinColumn(name = "quiz_id"))
     @Column(name = "tag")
     private List<String> tags;
@@ -48,13 +62,14 @@ public class Quiz {
     private List<Question> questions;
 
     @OneToMany(mappedBy = "quiz", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Fetch(FetchMode.SUBSELECT)
     private List<QuizResult> results;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id")
     private User author;
 
-    @Column(name = "created_at")
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     @PrePersist
@@ -2,8 +2,8 @@ package ru.utalieva.victorina.model.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
+import ru.utalieva.victorina.model.converter.AnswersConverter;
+
 import java.time.LocalDateTime;
 import java.util.Map;
 
@@ -12,7 +12,9 @@ import java.util.Map;
 @Table(name = "quiz_attempts")
 public class QuizAttempt {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Последовательность вместо IDENTITY: Hibernate может отправлять вставки попыток JDBC-пачками
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quiz_attempts_seq")
+    @SequenceGenerator(name = "quiz_attempts_seq", sequenceName = "quiz_attempts_id_seq", allocationSize = 1)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -41,9 +43,12 @@ public class QuizAttempt {
     @Column(nullable = false)
     private Boolean isCompleted = false;
 
+    @Column(nullable = false)
+    private Boolean expired = false; // Завершена сервером по истечении времени
+
     @Column(name = "user_answers")
-    @JdbcTypeCode(SqlTypes.JSON)
-    private Map<String, Integer> userAnswers;
+    @Convert(converter = AnswersConverter.class)
+    private Map<Integer, Integer> userAnswers; // questionIndex -> selectedOptionIndex
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "personality_result_id")
@@ -11,7 +11,8 @@ import java.util.Map;
 @Table(name = "quiz_results")
 public class QuizResult {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quiz_results_seq")
+    @SequenceGenerator(name = "quiz_results_seq", sequenceName = "quiz_results_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
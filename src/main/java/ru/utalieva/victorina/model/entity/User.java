@@ -5,6 +5,7 @@ import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import ru.utalieva.victorina.model.enumination.Role;
+import ru.utalieva.victorina.security.UserChangeListener;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -16,6 +17,7 @@ import java.util.Collections;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name ="users")
+@EntityListeners(UserChangeListener.class)
 public class User implements UserDetails {
 
     @Id
@@ -0,0 +1,7 @@
+package ru.utalieva.victorina.model.enumination;
+
+public enum LiveRoomState {
+    LOBBY,     // Участники подключаются, вопрос ещё не показан
+    QUESTION,  // Идёт вопрос questionIndex
+    FINISHED
+}
@@ -0,0 +1,99 @@
+package ru.utalieva.victorina.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.utalieva.victorina.model.converter.AnswerCodec;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Запись завершённых попыток в quiz_attempts напрямую через JDBC, пачками.
+ * Пока попытка идёт, строки нет: номер выдаётся из последовательности при старте.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuizAttemptJdbcRepository {
+    // Пачка пишется одним запросом: столбцы передаются массивами и разворачиваются через unnest.
+    // ON CONFLICT делает повторную вставку той же попытки (например, из журнала) безопасной, а RETURNING
+    // называет именно вставленные строки: счётчики batchUpdate драйвер вправе вернуть как SUCCESS_NO_INFO.
+    // Таблица секционирована по start_time, поэтому уникален только ключ (id, start_time)
+    private static final String INSERT_SQL = "INSERT INTO quiz_attempts (id, quiz_id, user_id, score, total_questions, " +
+            "time_spent, start_time, end_time, is_completed, expired, user_answers, personality_result_id) " +
+            "SELECT id, quiz_id, user_id, score, total_questions, time_spent, start_time, end_time, true, expired, " +
+            "user_answers, personality_result_id FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "AS t(id, quiz_id, user_id, score, total_questions, time_spent, start_time, end_time, expired, " +
+            "user_answers, personality_result_id) " +
+            "ON CONFLICT (id, start_time) DO NOTHING RETURNING id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Long nextId() {
+        return jdbcTemplate.queryForObject("SELECT nextval('quiz_attempts_id_seq')", Long.class);
+    }
+
+    /**
+     * @return для каждой попытки true, если строка вставлена, и false, если такая попытка уже была
+     * (в том числе встретилась раньше в этой же пачке)
+     */
+    public boolean[] insertCompleted(List<ScoredSubmission> submissions) {
+        if (submissions.isEmpty()) {
+            return new boolean[0];
+        }
+        int size = submissions.size();
+        Long[] ids = new Long[size];
+        Long[] quizIds = new Long[size];
+        Long[] userIds = new Long[size];
+        Integer[] scores = new Integer[size];
+        Integer[] totalQuestions = new Integer[size];
+        Integer[] timeSpent = new Integer[size];
+        Timestamp[] startTimes = new Timestamp[size];
+        Timestamp[] endTimes = new Timestamp[size];
+        Boolean[] expired = new Boolean[size];
+        byte[][] answers = new byte[size][];
+        Long[] personalityResultIds = new Long[size];
+        for (int i = 0; i < size; i++) {
+            ScoredSubmission submission = submissions.get(i);
+            ids[i] = submission.attemptId();
+            quizIds[i] = submission.quizId();
+            userIds[i] = submission.userId();
+            scores[i] = submission.score();
+            totalQuestions[i] = submission.totalQuestions();
+            timeSpent[i] = submission.timeSpent();
+            startTimes[i] = Timestamp.valueOf(submission.startTime());
+            endTimes[i] = Timestamp.valueOf(submission.endTime());
+            expired[i] = submission.expired();
+            answers[i] = AnswerCodec.encode(submission.answers());
+            personalityResultIds[i] = submission.personalityResultId();
+        }
+
+        List<Long> insertedIds = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+            ps.setArray(1, connection.createArrayOf("int8", ids));
+            ps.setArray(2, connection.createArrayOf("int8", quizIds));
+            ps.setArray(3, connection.createArrayOf("int8", userIds));
+            ps.setArray(4, connection.createArrayOf("int4", scores));
+            ps.setArray(5, connection.createArrayOf("int4", totalQuestions));
+            ps.setArray(6, connection.createArrayOf("int4", timeSpent));
+            ps.setArray(7, connection.createArrayOf("timestamp", startTimes));
+            ps.setArray(8, connection.createArrayOf("timestamp", endTimes));
+            ps.setArray(9, connection.createArrayOf("bool", expired));
+            ps.setArray(10, connection.createArrayOf("bytea", answers));
+            ps.setArray(11, connection.createArrayOf("int8", personalityResultIds));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+
+        Set<Long> pending = new HashSet<>(insertedIds);
+        boolean[] inserted = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            // Повтор в пачке вставляется один раз: true получает только первое вхождение
+            inserted[i] = pending.remove(ids[i]);
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.utalieva.victorina.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Месячные секции quiz_attempts: quiz_attempts_pYYYYMM с диапазоном start_time в один месяц.
+ * Строки вне созданных секций попадают в quiz_attempts_default.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuizAttemptPartitionRepository {
+    private static final String PREFIX = "quiz_attempts_p";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern NAME_PATTERN = Pattern.compile("^" + PREFIX + "(\\d{6})$");
+    // Строк за одно обращение к курсору при выгрузке секции
+    private static final int FETCH_SIZE = 1000;
+    // Сколько DETACH ждёт блокировку: пока он ждёт, за ним стоят все запросы к quiz_attempts
+    private static final String DETACH_LOCK_TIMEOUT = "5s";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public static String partitionName(YearMonth month) {
+        return PREFIX + month.format(MONTH_FORMAT);
+    }
+
+    public static Optional<YearMonth> monthOf(String partitionName) {
+        Matcher matcher = NAME_PATTERN.matcher(partitionName);
+        return matcher.matches()
+                ? Optional.of(YearMonth.parse(matcher.group(1), MONTH_FORMAT))
+                : Optional.empty();
+    }
+
+    /** Месячные секции, подключённые к quiz_attempts. */
+    public List<String> findAttachedPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'quiz_attempts' AND c.relname ~ '^" + PREFIX + "[0-9]{6}$' " +
+                "ORDER BY c.relname", String.class);
+    }
+
+    /** Отключённые, но ещё не удалённые секции: архивация была прервана. */
+    public List<String> findDetachedPartitions() {
+        return jdbcTemplate.queryForList("SELECT relname FROM pg_class " +
+                "WHERE relkind = 'r' AND NOT relispartition AND relname ~ '^" + PREFIX + "[0-9]{6}$' " +
+                "ORDER BY relname", String.class);
+    }
+
+    /**
+     * Создаёт секцию месяца. Строки этого месяца, уже попавшие в секцию по умолчанию,
+     * переносятся в новую секцию до её подключения - иначе PostgreSQL отказал бы в ATTACH.
+     * Вызывать в транзакции.
+     */
+    public void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        String from = month.atDay(1).atStartOfDay().toString();
+        String to = month.plusMonths(1).atDay(1).atStartOfDay().toString();
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE quiz_attempts INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM quiz_attempts_default " +
+                "WHERE start_time >= ?::timestamp AND start_time < ?::timestamp RETURNING *) " +
+                "INSERT INTO " + name + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE quiz_attempts ATTACH PARTITION " + name +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    /**
+     * Отключает секцию от quiz_attempts. DETACH CONCURRENTLY недоступен, пока у таблицы есть секция
+     * по умолчанию, поэтому DETACH берёт ACCESS EXCLUSIVE на quiz_attempts. Само отключение меняет только
+     * каталог и держит блокировку до конца транзакции - миллисекунды; дольше может длиться ожидание
+     * блокировки за идущими запросами, и оно ограничено lock_timeout. Вызывать в транзакции.
+     */
+    public void detachPartition(String name) {
+        requirePartitionName(name);
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + DETACH_LOCK_TIMEOUT + "'");
+        jdbcTemplate.execute("ALTER TABLE quiz_attempts DETACH PARTITION " + name);
+    }
+
+    public void dropPartition(String name) {
+        requirePartitionName(name);
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+
+    /**
+     * Строки отключённой секции по порядку id; user_answers отдаётся как BYTEA.
+     * Читаются курсором по FETCH_SIZE строк: вызывать в транзакции, иначе драйвер загрузит всю секцию сразу.
+     */
+    public void forEachRow(String name, RowCallbackHandler handler) {
+        requirePartitionName(name);
+        String sql = "SELECT id, quiz_id, user_id, score, total_questions, time_spent, start_time, end_time, " +
+                "is_completed, expired, user_answers, personality_result_id FROM " + name + " ORDER BY id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Завершённые попытки секции для статистики: quiz_id, expired, score, total_questions, time_spent, user_answers.
+     * Читаются курсором, как в {@link #forEachRow}: вызывать в транзакции.
+     */
+    public void forEachCompletedAttempt(String name, RowCallbackHandler handler) {
+        requirePartitionName(name);
+        String sql = "SELECT quiz_id, expired, score, total_questions, time_spent, user_answers FROM " + name +
+                " WHERE is_completed = TRUE";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    private static void requirePartitionName(String name) {
+        // Имя подставляется в SQL, поэтому принимаются только имена месячных секций
+        if (monthOf(name).isEmpty()) {
+            throw new IllegalArgumentException("Not a quiz_attempts partition: " + name);
+        }
+    }
+}
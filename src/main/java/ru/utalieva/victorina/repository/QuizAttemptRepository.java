@@ -1,14 +1,29 @@
 package ru.utalieva.victorina.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import ru.utalieva.victorina.model.dto.AttemptScore;
+import ru.utalieva.victorina.model.dto.AttemptSummaryDTO;
 import ru.utalieva.victorina.model.entity.QuizAttempt;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long> {
-    List<QuizAttempt> findByUserIdAndQuizId(Long userId, Long quizId);
-    
-    @Query("SELECT qa FROM QuizAttempt qa WHERE qa.user.id = :userId AND qa.isCompleted = true ORDER BY qa.endTime DESC")
-    List<QuizAttempt> findCompletedAttemptsByUserId(@Param("userId") Long userId);
+    // Keyset-страница истории: (end_time, id) строго меньше курсора, индекс idx_quiz_attempts_user_end_time
+    @Query("SELECT new ru.utalieva.victorina.model.dto.AttemptSummaryDTO(" +
+           "qa.id, q.id, q.title, q.quizType, qa.score, qa.totalQuestions, qa.timeSpent, qa.endTime, pr.title) " +
+           "FROM QuizAttempt qa JOIN qa.quiz q LEFT JOIN qa.personalityResult pr " +
+           "WHERE qa.user.id = :userId AND qa.isCompleted = true " +
+           "AND (qa.endTime < :afterEndTime OR (qa.endTime = :afterEndTime AND qa.id < :afterId)) " +
+           "ORDER BY qa.endTime DESC, qa.id DESC")
+    List<AttemptSummaryDTO> findHistoryPage(@Param("userId") Long userId,
+                                            @Param("afterEndTime") LocalDateTime afterEndTime,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    @Query("SELECT new ru.utalieva.victorina.model.dto.AttemptScore(qa.id, qa.user.id, qa.score, qa.timeSpent) " +
+           "FROM QuizAttempt qa WHERE qa.quiz.id = :quizId AND qa.isCompleted = true")
+    List<AttemptScore> findCompletedScoresByQuizId(@Param("quizId") Long quizId);
 } 
\ No newline at end of file
@@ -0,0 +1,330 @@
+package ru.utalieva.victorina.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.utalieva.victorina.model.dto.OptionDTO;
+import ru.utalieva.victorina.model.dto.QuestionDTO;
+import ru.utalieva.victorina.model.dto.QuizCreateDTO;
+import ru.utalieva.victorina.model.entity.Option;
+import ru.utalieva.victorina.model.entity.Question;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.entity.QuizResult;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Массовая запись и выгрузка викторин через JDBC. Номера строк заранее берутся из последовательностей
+ * одним запросом на таблицу, после чего викторины, теги, вопросы, варианты и результаты пачки
+ * вставляются одним запросом на таблицу.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuizBulkRepository {
+    // Каждая таблица пишется одним запросом: столбцы передаются массивами и разворачиваются через unnest
+    private static final String INSERT_QUIZZES_SQL = "INSERT INTO quizzes (id, title, description, category, " +
+            "difficulty, quiz_type, time_duration, is_public, author_id, created_at) " +
+            "SELECT * FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_TAGS_SQL = "INSERT INTO quiz_tags (quiz_id, tag) SELECT * FROM unnest(?, ?)";
+    private static final String INSERT_QUESTIONS_SQL = "INSERT INTO questions (id, quiz_id, question, image, correct_index) " +
+            "SELECT * FROM unnest(?, ?, ?, ?, ?)";
+    private static final String INSERT_OPTIONS_SQL = "INSERT INTO options (id, question_id, type, content, traits) " +
+            "SELECT id, question_id, type, content, traits::jsonb FROM unnest(?, ?, ?, ?, ?) " +
+            "AS t(id, question_id, type, content, traits)";
+    private static final String INSERT_RESULTS_SQL = "INSERT INTO quiz_results (id, quiz_id, title, description, image, " +
+            "min_score, max_score, personality_traits, target_answers) " +
+            "SELECT id, quiz_id, title, description, image, min_score, max_score, personality_traits::jsonb, " +
+            "target_answers::jsonb FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "AS t(id, quiz_id, title, description, image, min_score, max_score, personality_traits, target_answers)";
+    // Пачка выгрузки: викторины пользователя и публичные, по возрастанию id после последней выгруженной
+    private static final String SELECT_QUIZZES_SQL = "SELECT id, title, description, category, difficulty, quiz_type, " +
+            "time_duration, is_public, author_id = ? FROM quizzes WHERE id > ? AND (is_public OR author_id = ?) " +
+            "ORDER BY id LIMIT ?";
+
+    // Шаг последовательностей quizzes, questions, options и quiz_results (V29), он же allocationSize сущностей
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Сохраняет собранные викторины вместе с вложенными строками; вызывается в транзакции.
+     * Номера новых строк проставляются в переданные объекты.
+     */
+    public void insert(List<Quiz> quizzes) {
+        if (quizzes.isEmpty()) {
+            return;
+        }
+        List<Question> questions = new ArrayList<>();
+        List<Option> options = new ArrayList<>();
+        List<QuizResult> results = new ArrayList<>();
+        List<Long> tagQuizIds = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        for (Quiz quiz : quizzes) {
+            questions.addAll(quiz.getQuestions());
+            results.addAll(quiz.getResults());
+            quiz.getQuestions().forEach(question -> options.addAll(question.getOptions()));
+        }
+
+        long[] quizIds = nextIds("quizzes_id_seq", quizzes.size());
+        long[] questionIds = nextIds("questions_id_seq", questions.size());
+        long[] optionIds = nextIds("options_id_seq", options.size());
+        long[] resultIds = nextIds("quiz_results_id_seq", results.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < quizzes.size(); i++) {
+            Quiz quiz = quizzes.get(i);
+            quiz.setId(quizIds[i]);
+            quiz.setCreatedAt(now);
+            for (String tag : quiz.getTags()) {
+                tagQuizIds.add(quiz.getId());
+                tags.add(tag);
+            }
+        }
+        for (int i = 0; i < questions.size(); i++) {
+            questions.get(i).setId(questionIds[i]);
+        }
+        for (int i = 0; i < options.size(); i++) {
+            options.get(i).setId(optionIds[i]);
+        }
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).setId(resultIds[i]);
+        }
+
+        insertColumns(INSERT_QUIZZES_SQL,
+                column("int8", quizzes, Quiz::getId),
+                column("text", quizzes, Quiz::getTitle),
+                column("text", quizzes, Quiz::getDescription),
+                column("text", quizzes, Quiz::getCategory),
+                column("text", quizzes, Quiz::getDifficulty),
+                column("text", quizzes, quiz -> quiz.getQuizType().name()),
+                column("int4", quizzes, Quiz::getTimeDuration),
+                column("bool", quizzes, Quiz::isPublic),
+                column("int8", quizzes, quiz -> quiz.getAuthor().getId()),
+                column("timestamp", quizzes, quiz -> Timestamp.valueOf(quiz.getCreatedAt())));
+        if (!tags.isEmpty()) {
+            insertColumns(INSERT_TAGS_SQL,
+                    new Column("int8", tagQuizIds.toArray()),
+                    new Column("text", tags.toArray()));
+        }
+        if (!questions.isEmpty()) {
+            insertColumns(INSERT_QUESTIONS_SQL,
+                    column("int8", questions, Question::getId),
+                    column("int8", questions, question -> question.getQuiz().getId()),
+                    column("text", questions, Question::getQuestion),
+                    column("text", questions, Question::getImage),
+                    column("int4", questions, Question::getCorrectIndex));
+        }
+        if (!options.isEmpty()) {
+            insertColumns(INSERT_OPTIONS_SQL,
+                    column("int8", options, Option::getId),
+                    column("int8", options, option -> option.getQuestion().getId()),
+                    column("text", options, Option::getType),
+                    column("text", options, Option::getContent),
+                    column("text", options, option -> toJson(option.getTraits())));
+        }
+        if (!results.isEmpty()) {
+            insertColumns(INSERT_RESULTS_SQL,
+                    column("int8", results, QuizResult::getId),
+                    column("int8", results, result -> result.getQuiz().getId()),
+                    column("text", results, QuizResult::getTitle),
+                    column("text", results, QuizResult::getDescription),
+                    column("text", results, QuizResult::getImage),
+                    column("int4", results, QuizResult::getMinScore),
+                    column("int4", results, QuizResult::getMaxScore),
+                    column("text", results, result -> toJson(result.getPersonalityTraits())),
+                    column("text", results, result -> toJson(result.getTargetAnswers())));
+        }
+    }
+
+    /**
+     * Пачка выгрузки.
+     *
+     * @param quizzes викторины в формате создания, по возрастанию id
+     * @param lastId  id последней викторины пачки, с него начинается следующая
+     */
+    public record ExportChunk(List<QuizCreateDTO> quizzes, long lastId) {
+    }
+
+    /**
+     * Следующие chunkSize викторин после afterId, доступные пользователю: публичные и его собственные.
+     * Правильные ответы, характеристики вариантов и цели результатов отдаются только для викторин
+     * пользователя. Вложенные строки читаются одним запросом на таблицу для всей пачки;
+     * вызывается в транзакции, чтобы пачка была согласованным снимком.
+     */
+    public ExportChunk findChunk(long afterId, Long userId, int chunkSize) {
+        Map<Long, QuizCreateDTO> chunk = new LinkedHashMap<>();
+        Set<Long> owned = new HashSet<>();
+        long[] lastId = {afterId};
+        jdbcTemplate.query(SELECT_QUIZZES_SQL, rs -> {
+            long quizId = rs.getLong(1);
+            QuizCreateDTO quiz = new QuizCreateDTO();
+            quiz.setTitle(rs.getString(2));
+            quiz.setDescription(rs.getString(3));
+            quiz.setCategory(rs.getString(4));
+            quiz.setDifficulty(rs.getString(5));
+            String quizType = rs.getString(6);
+            quiz.setQuizType(quizType != null ? QuizType.valueOf(quizType) : QuizType.STANDARD);
+            quiz.setTimeDuration(rs.getObject(7, Integer.class));
+            quiz.setPublic(rs.getBoolean(8));
+            quiz.setTags(new ArrayList<>());
+            quiz.setQuestions(new ArrayList<>());
+            chunk.put(quizId, quiz);
+            if (rs.getBoolean(9)) {
+                owned.add(quizId);
+            }
+            lastId[0] = quizId;
+        }, userId, afterId, userId, chunkSize);
+        if (!chunk.isEmpty()) {
+            complete(chunk, owned);
+        }
+        return new ExportChunk(new ArrayList<>(chunk.values()), lastId[0]);
+    }
+
+    private void complete(Map<Long, QuizCreateDTO> chunk, Set<Long> owned) {
+        Long[] quizIds = chunk.keySet().toArray(Long[]::new);
+
+        jdbcTemplate.query("SELECT quiz_id, tag FROM quiz_tags WHERE quiz_id = ANY(?)",
+                rs -> {
+                    chunk.get(rs.getLong(1)).getTags().add(rs.getString(2));
+                }, (Object) quizIds);
+
+        Map<Long, QuestionDTO> questions = new HashMap<>();
+        Set<Long> ownedQuestions = new HashSet<>();
+        jdbcTemplate.query("SELECT id, quiz_id, question, image, correct_index FROM questions " +
+                        "WHERE quiz_id = ANY(?) ORDER BY id",
+                rs -> {
+                    QuestionDTO question = new QuestionDTO();
+                    question.setQuestion(rs.getString(3));
+                    question.setImage(rs.getString(4));
+                    if (owned.contains(rs.getLong(2))) {
+                        question.setCorrectIndex(rs.getObject(5, Integer.class));
+                        ownedQuestions.add(rs.getLong(1));
+                    }
+                    question.setOptions(new ArrayList<>());
+                    questions.put(rs.getLong(1), question);
+                    chunk.get(rs.getLong(2)).getQuestions().add(question);
+                }, (Object) quizIds);
+
+        if (!questions.isEmpty()) {
+            jdbcTemplate.query("SELECT question_id, type, content, traits FROM options " +
+                            "WHERE question_id = ANY(?) ORDER BY id",
+                    rs -> {
+                        OptionDTO option = new OptionDTO();
+                        option.setType(rs.getString(2));
+                        option.setContent(rs.getString(3));
+                        if (ownedQuestions.contains(rs.getLong(1))) {
+                            option.setTraits(fromJson(rs.getString(4)));
+                        }
+                        questions.get(rs.getLong(1)).getOptions().add(option);
+                    }, (Object) questions.keySet().toArray(Long[]::new));
+        }
+
+        // Результаты стандартной викторины строятся по числу вопросов при импорте, выгружаем только результаты тестов личности
+        jdbcTemplate.query("SELECT r.quiz_id, r.title, r.description, r.image, r.personality_traits " +
+                        "FROM quiz_results r JOIN quizzes q ON q.id = r.quiz_id " +
+                        "WHERE r.quiz_id = ANY(?) AND q.quiz_type = 'PERSONALITY' ORDER BY r.id",
+                rs -> {
+                    QuizCreateDTO quiz = chunk.get(rs.getLong(1));
+                    if (quiz.getResults() == null) {
+                        quiz.setResults(new ArrayList<>());
+                    }
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("title", rs.getString(2));
+                    result.put("description", rs.getString(3));
+                    result.put("image", rs.getString(4));
+                    if (owned.contains(rs.getLong(1))) {
+                        result.put("personalityTraits", fromJson(rs.getString(5)));
+                    }
+                    quiz.getResults().add(result);
+                }, (Object) quizIds);
+    }
+
+    private record Column(String type, Object[] values) {
+    }
+
+    private static <T> Column column(String type, List<T> rows, Function<T, Object> getter) {
+        Object[] values = new Object[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getter.apply(rows.get(i));
+        }
+        return new Column(type, values);
+    }
+
+    private void insertColumns(String sql, Column... columns) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            for (int i = 0; i < columns.length; i++) {
+                ps.setArray(i + 1, connection.createArrayOf(columns[i].type(), columns[i].values()));
+            }
+            return ps;
+        });
+    }
+
+    /**
+     * Номера из последовательности с шагом ID_BLOCK_SIZE: каждый nextval - верхняя граница свободного блока,
+     * как у оптимизатора pooled в Hibernate, поэтому на пачку нужен один nextval на ID_BLOCK_SIZE строк.
+     * Первый nextval свежей последовательности равен её START = 1, и ниже него номеров нет: такой блок
+     * состоит из одной единицы, а недостающие номера добираются следующими блоками.
+     */
+    long[] nextIds(String sequence, int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            long[] blockEnds = jdbcTemplate.queryForObject(
+                    "SELECT ARRAY(SELECT nextval(?::regclass) FROM generate_series(1, ?))",
+                    (rs, rowNum) -> longs(rs), sequence, blocks);
+            for (long blockEnd : blockEnds) {
+                for (long id = Math.max(1, blockEnd - ID_BLOCK_SIZE + 1); id <= blockEnd && filled < count; id++) {
+                    ids[filled++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static long[] longs(ResultSet rs) throws SQLException {
+        Array array = rs.getArray(1);
+        return Arrays.stream((Long[]) array.getArray()).mapToLong(Long::longValue).toArray();
+    }
+
+    private String toJson(Map<String, Integer> value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Не удалось сериализовать " + value, e);
+        }
+    }
+
+    private Map<String, Integer> fromJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, objectMapper.getTypeFactory()
+                    .constructMapType(HashMap.class, String.class, Integer.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать " + json, e);
+        }
+    }
+}
@@ -1,10 +1,58 @@
 package ru.utalieva.victorina.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.utalieva.victorina.model.dto.QuizSummaryDTO;
 import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.enumination.QuizType;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface QuizRepository extends JpaRepository<Quiz, Long> {
+    @EntityGraph("Quiz.detail")
     List<Quiz> findByAuthorUsername(String username);
-} 
\ No newline at end of file
+
+    @EntityGraph("Quiz.detail")
+    Optional<Quiz> findDetailById(Long id);
+
+    @EntityGraph("Quiz.play")
+    Optional<Quiz> findPlayById(Long id);
+
+    @Query("SELECT q.author.id FROM Quiz q WHERE q.id = :id")
+    Optional<Long> findAuthorIdById(@Param("id") Long id);
+
+    @Query("SELECT new ru.utalieva.victorina.model.dto.QuizSummaryDTO(" +
+            "q.id, q.title, q.description, q.category, q.quizType, q.difficulty, q.timeDuration, q.isPublic, " +
+            "a.id, a.username, q.createdAt, " +
+            "(SELECT COUNT(qs) FROM Question qs WHERE qs.quiz = q), " +
+            "(SELECT COUNT(r) FROM QuizResult r WHERE r.quiz = q)) " +
+            "FROM Quiz q LEFT JOIN q.author a " +
+            "WHERE (:category IS NULL OR q.category = :category) " +
+            "AND (:difficulty IS NULL OR q.difficulty = :difficulty) " +
+            "AND (:quizType IS NULL OR q.quizType = :quizType) " +
+            "AND (:isPublic IS NULL OR q.isPublic = :isPublic) " +
+            "AND (q.createdAt < :afterCreatedAt OR (q.createdAt = :afterCreatedAt AND q.id < :afterId)) " +
+            "ORDER BY q.createdAt DESC, q.id DESC")
+    List<QuizSummaryDTO> findCatalogPage(@Param("category") String category,
+                                         @Param("difficulty") String difficulty,
+                                         @Param("quizType") QuizType quizType,
+                                         @Param("isPublic") Boolean isPublic,
+                                         @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    @Query("SELECT new ru.utalieva.victorina.model.dto.QuizSummaryDTO(" +
+            "q.id, q.title, q.description, q.category, q.quizType, q.difficulty, q.timeDuration, q.isPublic, " +
+            "a.id, a.username, q.createdAt, " +
+            "(SELECT COUNT(qs) FROM Question qs WHERE qs.quiz = q), " +
+            "(SELECT COUNT(r) FROM QuizResult r WHERE r.quiz = q)) " +
+            "FROM Quiz q LEFT JOIN q.author a " +
+            "WHERE q.id IN :ids")
+    List<QuizSummaryDTO> findSummariesByIds(@Param("ids") Collection<Long> ids);
+}
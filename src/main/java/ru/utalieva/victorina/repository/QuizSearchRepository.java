@@ -0,0 +1,76 @@
+package ru.utalieva.victorina.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Данные для индекса поиска викторин. Морфологию делает PostgreSQL: лексемы документа
+ * берутся из quizzes.search_vector, лексемы запроса - из to_tsvector('russian', ...).
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuizSearchRepository {
+    private static final String DOCUMENT_SQL = "SELECT q.id, q.category, q.difficulty, q.created_at, " +
+            "ARRAY(SELECT t.tag FROM quiz_tags t WHERE t.quiz_id = q.id), " +
+            "ARRAY(SELECT l.lexeme FROM unnest(q.search_vector) l), " +
+            "ARRAY(SELECT array_to_string(l.weights, '') FROM unnest(q.search_vector) l) " +
+            "FROM quizzes q";
+    // Документов за одно обращение к курсору при загрузке индекса
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param lexemes лексемы документа
+     * @param weights для каждой лексемы веса её вхождений: A - название, B - описание
+     */
+    public record Document(Long quizId, String category, String difficulty, long createdAt,
+                           List<String> tags, List<String> lexemes, List<String> weights) {
+    }
+
+    /** Все документы курсором по FETCH_SIZE строк: без транзакции драйвер загрузил бы таблицу целиком. */
+    @Transactional(readOnly = true)
+    public void forEachDocument(Consumer<Document> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(DOCUMENT_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(toDocument(rs));
+        });
+    }
+
+    public List<Document> findDocuments(Collection<Long> quizIds) {
+        return jdbcTemplate.query(DOCUMENT_SQL + " WHERE q.id = ANY(?) ORDER BY q.id", (rs, rowNum) -> toDocument(rs),
+                (Object) quizIds.toArray(Long[]::new));
+    }
+
+    /** Лексемы текста запроса: нормализованные формы слов без стоп-слов. */
+    public List<String> analyze(String text) {
+        return jdbcTemplate.queryForObject("SELECT ARRAY(SELECT lexeme FROM unnest(to_tsvector('russian', ?)))",
+                (rs, rowNum) -> strings(rs.getArray(1)), text);
+    }
+
+    private static Document toDocument(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp(4);
+        return new Document(rs.getLong(1), rs.getString(2), rs.getString(3),
+                createdAt != null ? createdAt.getTime() : 0L,
+                strings(rs.getArray(5)), strings(rs.getArray(6)), strings(rs.getArray(7)));
+    }
+
+    private static List<String> strings(Array array) throws SQLException {
+        return array != null ? Arrays.asList((String[]) array.getArray()) : List.of();
+    }
+}
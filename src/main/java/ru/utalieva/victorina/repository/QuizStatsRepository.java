@@ -0,0 +1,196 @@
+package ru.utalieva.victorina.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.utalieva.victorina.service.QuizStatsDelta;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сводные таблицы статистики викторин: quiz_stats, question_stats и quiz_time_buckets.
+ * Приращения складываются в строки через INSERT ... ON CONFLICT DO UPDATE. Таблицы *_archived того же вида
+ * хранят долю попыток из архивированных секций quiz_attempts, которую пересчёт уже не может прочитать.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuizStatsRepository {
+    private static final StatsTables LIVE = new StatsTables("quiz_stats", "question_stats", "quiz_time_buckets");
+    private static final StatsTables ARCHIVED =
+            new StatsTables("quiz_stats_archived", "question_stats_archived", "quiz_time_buckets_archived");
+    // Строк за одно обращение к курсору при чтении попыток для пересчёта
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Прибавляет приращения к сводным таблицам. Строки викторин блокируются в порядке id,
+     * чтобы параллельные пачки не взаимоблокировались.
+     */
+    public void apply(List<QuizStatsDelta> deltas) {
+        apply(LIVE, deltas);
+    }
+
+    /** Прибавляет приращения к архивной доле статистики, см. {@link #findArchived}. */
+    public void applyArchived(List<QuizStatsDelta> deltas) {
+        apply(ARCHIVED, deltas);
+    }
+
+    private void apply(StatsTables tables, List<QuizStatsDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<QuizStatsDelta> ordered = new ArrayList<>(deltas);
+        ordered.sort(Comparator.comparing(QuizStatsDelta::getQuizId));
+
+        // Сначала строка quiz_stats: её блокировка упорядочивает запись с пересчётом
+        jdbcTemplate.batchUpdate(tables.upsertQuizSql(), ordered, ordered.size(), (ps, delta) -> {
+            ps.setLong(1, delta.getQuizId());
+            ps.setLong(2, delta.getSubmitted());
+            ps.setLong(3, delta.getExpired());
+            ps.setLong(4, delta.getScoreSum());
+            ps.setLong(5, delta.getQuestionsSum());
+            ps.setLong(6, delta.getTimeSpentSum());
+        });
+
+        List<long[]> questions = new ArrayList<>();
+        List<long[]> buckets = new ArrayList<>();
+        for (QuizStatsDelta delta : ordered) {
+            for (int q = 0; q < delta.getQuestionCount(); q++) {
+                if (delta.getAnswered(q) > 0) {
+                    questions.add(new long[]{delta.getQuizId(), q, delta.getAnswered(q), delta.getCorrect(q)});
+                }
+            }
+            for (int b = 0; b < delta.getTimeBucketCount(); b++) {
+                if (delta.getTimeBucket(b) > 0) {
+                    buckets.add(new long[]{delta.getQuizId(), b, delta.getTimeBucket(b)});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate(tables.upsertQuestionSql(), questions, questions.size(), (ps, row) -> {
+            ps.setLong(1, row[0]);
+            ps.setInt(2, (int) row[1]);
+            ps.setLong(3, row[2]);
+            ps.setLong(4, row[3]);
+        });
+        jdbcTemplate.batchUpdate(tables.upsertBucketSql(), buckets, buckets.size(), (ps, row) -> {
+            ps.setLong(1, row[0]);
+            ps.setInt(2, (int) row[1]);
+            ps.setLong(3, row[2]);
+        });
+    }
+
+    /**
+     * Блокирует строку статистики викторины до конца транзакции, создавая её при необходимости.
+     * Пока блокировка держится, новые попытки этой викторины ждут на своём upsert.
+     */
+    public void lock(Long quizId) {
+        jdbcTemplate.update("INSERT INTO quiz_stats (quiz_id) VALUES (?) ON CONFLICT (quiz_id) DO NOTHING", quizId);
+        jdbcTemplate.queryForList("SELECT quiz_id FROM quiz_stats WHERE quiz_id = ? FOR UPDATE", Long.class, quizId);
+    }
+
+    /** Блокирует строки статистики нескольких викторин в порядке id, см. {@link #lock(Long)}. */
+    public void lock(List<Long> quizIds) {
+        List<Long> ordered = quizIds.stream().sorted().toList();
+        // DO UPDATE, в отличие от DO NOTHING, блокирует уже существующую строку
+        jdbcTemplate.batchUpdate("INSERT INTO quiz_stats (quiz_id) VALUES (?) " +
+                "ON CONFLICT (quiz_id) DO UPDATE SET quiz_id = EXCLUDED.quiz_id", ordered, ordered.size(),
+                (ps, quizId) -> ps.setLong(1, quizId));
+    }
+
+    /** Заменяет статистику викторины целиком; вызывается под {@link #lock(Long)}. */
+    public void replace(QuizStatsDelta stats) {
+        Long quizId = stats.getQuizId();
+        jdbcTemplate.update("DELETE FROM question_stats WHERE quiz_id = ?", quizId);
+        jdbcTemplate.update("DELETE FROM quiz_time_buckets WHERE quiz_id = ?", quizId);
+        jdbcTemplate.update("UPDATE quiz_stats SET submitted = 0, expired = 0, score_sum = 0, questions_sum = 0, " +
+                "time_spent_sum = 0 WHERE quiz_id = ?", quizId);
+        apply(List.of(stats));
+    }
+
+    public Optional<QuizStatsDelta> find(Long quizId, int questionCount) {
+        return find(LIVE, quizId, questionCount);
+    }
+
+    /** Доля статистики от попыток из архивированных секций. */
+    public Optional<QuizStatsDelta> findArchived(Long quizId, int questionCount) {
+        return find(ARCHIVED, quizId, questionCount);
+    }
+
+    private Optional<QuizStatsDelta> find(StatsTables tables, Long quizId, int questionCount) {
+        QuizStatsDelta stats = new QuizStatsDelta(quizId, questionCount);
+        List<Boolean> found = jdbcTemplate.query("SELECT submitted, expired, score_sum, questions_sum, time_spent_sum " +
+                "FROM " + tables.quiz() + " WHERE quiz_id = ?", (rs, rowNum) -> {
+            stats.addTotals(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+            return true;
+        }, quizId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbcTemplate.query("SELECT question_index, answered, correct FROM " + tables.question() + " WHERE quiz_id = ?", rs -> {
+            int questionIndex = rs.getInt(1);
+            if (questionIndex < questionCount) {
+                stats.addAnswers(questionIndex, rs.getLong(2), rs.getLong(3));
+            }
+        }, quizId);
+        jdbcTemplate.query("SELECT bucket, attempts FROM " + tables.bucket() + " WHERE quiz_id = ?", rs -> {
+            int bucket = rs.getInt(1);
+            if (bucket < stats.getTimeBucketCount()) {
+                stats.addTimeBucket(bucket, rs.getLong(2));
+            }
+        }, quizId);
+        return Optional.of(stats);
+    }
+
+    /**
+     * Завершённые попытки викторины для пересчёта: expired, score, total_questions, time_spent, user_answers.
+     * Читаются курсором по FETCH_SIZE строк: вызывать в транзакции, иначе драйвер загрузит все попытки сразу.
+     */
+    public void forEachAttempt(Long quizId, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT expired, score, total_questions, time_spent, " +
+                    "user_answers FROM quiz_attempts WHERE quiz_id = ? AND is_completed = TRUE");
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, quizId);
+            return ps;
+        }, handler);
+    }
+
+    /** Викторины, у которых есть хотя бы одна завершённая попытка. */
+    public List<Long> findQuizIdsWithAttempts() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT quiz_id FROM quiz_attempts WHERE is_completed = TRUE " +
+                "ORDER BY quiz_id", Long.class);
+    }
+
+    /** Таблицы одного вида сводной статистики: по викторине, по вопросам и гистограмма времени. */
+    private record StatsTables(String quiz, String question, String bucket) {
+        String upsertQuizSql() {
+            return "INSERT INTO " + quiz + " (quiz_id, submitted, expired, score_sum, questions_sum, time_spent_sum) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (quiz_id) DO UPDATE SET " +
+                    "submitted = " + quiz + ".submitted + EXCLUDED.submitted, " +
+                    "expired = " + quiz + ".expired + EXCLUDED.expired, " +
+                    "score_sum = " + quiz + ".score_sum + EXCLUDED.score_sum, " +
+                    "questions_sum = " + quiz + ".questions_sum + EXCLUDED.questions_sum, " +
+                    "time_spent_sum = " + quiz + ".time_spent_sum + EXCLUDED.time_spent_sum, " +
+                    "updated_at = CURRENT_TIMESTAMP";
+        }
+
+        String upsertQuestionSql() {
+            return "INSERT INTO " + question + " (quiz_id, question_index, answered, correct) " +
+                    "VALUES (?, ?, ?, ?) ON CONFLICT (quiz_id, question_index) DO UPDATE SET " +
+                    "answered = " + question + ".answered + EXCLUDED.answered, " +
+                    "correct = " + question + ".correct + EXCLUDED.correct";
+        }
+
+        String upsertBucketSql() {
+            return "INSERT INTO " + bucket + " (quiz_id, bucket, attempts) " +
+                    "VALUES (?, ?, ?) ON CONFLICT (quiz_id, bucket) DO UPDATE SET " +
+                    "attempts = " + bucket + ".attempts + EXCLUDED.attempts";
+        }
+    }
+}
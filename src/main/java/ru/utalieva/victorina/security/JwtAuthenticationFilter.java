@@ -1,16 +1,16 @@
 package ru.utalieva.victorina.security;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,14 +21,17 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtTokenUtil jwtTokenUtil;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final boolean trustTokenClaims;
 
     public JwtAuthenticationFilter(
             JwtTokenUtil jwtTokenUtil,
-            @Lazy UserDetailsService userDetailsService
+            PrincipalCache principalCache,
+            @Value("${jwt.trust-claims:false}") boolean trustTokenClaims
     ) {
         this.jwtTokenUtil = jwtTokenUtil;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
+        this.trustTokenClaims = trustTokenClaims;
     }
 
     @Override
@@ -36,51 +39,44 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                   HttpServletResponse response,
                                   FilterChain chain) throws ServletException, IOException {
         try {
-            // Логируем детали запроса
-            logger.debug("Processing request: {} {}", request.getMethod(), request.getRequestURI());
-            logger.debug("Headers: {}", request.getHeaderNames());
-            
+            // Заголовки и сам токен не логируются: это учётные данные, а перечисление заголовков
+            // стоило аллокаций на каждый запрос даже при выключенном DEBUG
+            final boolean debug = logger.isDebugEnabled();
             final String authorizationHeader = request.getHeader("Authorization");
-            logger.debug("Authorization header: {}", authorizationHeader);
 
-            String username = null;
-            String jwt = null;
+            VerifiedToken token = null;
 
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-                jwt = authorizationHeader.substring(7);
-                logger.debug("Extracted JWT token: {}", jwt);
-                
                 try {
-                    username = jwtTokenUtil.extractUsername(jwt);
-                    logger.debug("Extracted username from JWT: {}", username);
-                } catch (Exception e) {
-                    logger.error("Failed to extract username from JWT: {}", e.getMessage());
+                    // Подпись и срок действия проверяются здесь один раз на запрос
+                    token = jwtTokenUtil.verify(authorizationHeader.substring(7));
+                } catch (JwtException | IllegalArgumentException e) {
+                    logger.warn("Token validation failed: {}", e.getMessage());
                 }
-            } else {
-                logger.debug("No Bearer token found in request");
             }
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 try {
-                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                    logger.debug("Loaded user details for {}: {}", username, userDetails);
+                    // uid/role из токена позволяют обойтись без базы; иначе берём principal из кэша
+                    UserDetails userDetails = trustTokenClaims ? token.toPrincipal() : null;
+                    if (userDetails == null) {
+                        userDetails = principalCache.get(token.subject());
+                    }
 
-                    if (jwtTokenUtil.validateToken(jwt, userDetails)) {
-                        UsernamePasswordAuthenticationToken authentication =
-                                new UsernamePasswordAuthenticationToken(
-                                        userDetails, null, userDetails.getAuthorities());
-                        authentication.setDetails(
-                                new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                        logger.debug("Authentication successful for user: {}", username);
-                    } else {
-                        logger.warn("Token validation failed for user: {}", username);
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(
+                            new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    if (debug) {
+                        logger.debug("Authenticated {} for {} {}", token.subject(), request.getMethod(), request.getRequestURI());
                     }
                 } catch (Exception e) {
                     logger.error("Error loading user details: {}", e.getMessage());
                 }
-            } else {
-                logger.debug("No authentication needed or already authenticated");
+            } else if (debug) {
+                logger.debug("No authentication from token for {} {}", request.getMethod(), request.getRequestURI());
             }
         } catch (Exception e) {
             logger.error("Error processing JWT token: {}", e.getMessage(), e);
@@ -1,26 +1,58 @@
-
 package ru.utalieva.victorina.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import ru.utalieva.victorina.model.enumination.Role;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 @Component
 public class JwtTokenUtil {
     private static final SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
     private static final long ACCESS_TOKEN_VALIDITY = 3600 * 1000;
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+
+    // Собранный парсер неизменяем и потокобезопасен, поэтому создаётся один раз
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
+
+    // Недавно проверенные токены; null, если кэш выключен
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtTokenUtil(@Value("${jwt.verified-cache.enabled:true}") boolean verifiedCacheEnabled,
+                        @Value("${jwt.verified-cache.max-size:10000}") long verifiedCacheSize,
+                        @Value("${jwt.verified-cache.ttl:60s}") Duration verifiedCacheTtl) {
+        this.verifiedTokens = verifiedCacheEnabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(verifiedCacheSize)
+                        .expireAfterWrite(verifiedCacheTtl)
+                        .build()
+                : null;
+    }
+
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof UserPrincipal principal) {
+            claims.put(USER_ID_CLAIM, principal.getId());
+            claims.put(ROLE_CLAIM, principal.getRole().name());
+        }
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(userDetails.getUsername())
@@ -30,33 +62,47 @@ public class JwtTokenUtil {
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
-
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    /**
+     * Разбирает токен и проверяет HMAC-подпись и срок действия ровно один раз.
+     *
+     * @throws io.jsonwebtoken.JwtException если токен повреждён, подделан или просрочен
+     */
+    public VerifiedToken verify(String token) {
+        if (verifiedTokens != null) {
+            VerifiedToken cached = verifiedTokens.getIfPresent(token);
+            if (cached != null) {
+                if (cached.isExpired(Instant.now())) {
+                    verifiedTokens.invalidate(token);
+                    throw new ExpiredJwtException(null, null, "JWT expired at " + cached.expiresAt());
+                }
+                return cached;
+            }
+        }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        VerifiedToken verified = toVerifiedToken(parser.parseClaimsJws(token).getBody());
+        if (verifiedTokens != null) {
+            verifiedTokens.put(token, verified);
+        }
+        return verified;
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public Boolean validateToken(String token, UserDetails userDetails) {
+        VerifiedToken verified = verify(token);
+        return verified.subject().equals(userDetails.getUsername()) && !verified.isExpired(Instant.now());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String extractUsername(String token) {
+        return verify(token).subject();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(
+                claims.getSubject(),
+                userId != null ? userId.longValue() : null,
+                role != null ? Role.valueOf(role) : null,
+                expiration != null ? expiration.toInstant() : null);
     }
-}
\ No newline at end of file
+}
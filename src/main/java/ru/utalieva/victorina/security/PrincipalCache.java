@@ -0,0 +1,46 @@
+package ru.utalieva.victorina.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import ru.utalieva.victorina.service.CacheLoads;
+
+import java.time.Duration;
+
+/**
+ * Короткоживущий кэш username -> UserPrincipal для JwtAuthenticationFilter,
+ * чтобы не ходить в таблицу users на каждый запрос.
+ * Вход по паролю (AuthenticationManager) этот кэш не использует.
+ */
+@Component
+public class PrincipalCache {
+    private final UserDetailsService userDetailsService;
+    private final AsyncCache<String, UserPrincipal> cache;
+
+    public PrincipalCache(@Lazy UserDetailsService userDetailsService,
+                          @Value("${security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${security.principal-cache.ttl:60s}") Duration ttl) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public UserPrincipal get(String username) {
+        return CacheLoads.get(cache, username, name -> (UserPrincipal) userDetailsService.loadUserByUsername(name));
+    }
+
+    /** Вызывается при смене пароля, роли или удалении пользователя. */
+    public void invalidate(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+}
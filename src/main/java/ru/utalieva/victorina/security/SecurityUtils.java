@@ -14,6 +14,15 @@ public class SecurityUtils {
         this.userRepository = userRepository;
     }
 
+    /** Текущий principal из контекста безопасности, без запроса к базе. */
+    public UserPrincipal getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
+        }
+        return null;
+    }
+
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
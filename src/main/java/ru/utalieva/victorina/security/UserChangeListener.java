@@ -0,0 +1,38 @@
+package ru.utalieva.victorina.security;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.utalieva.victorina.model.entity.User;
+
+/**
+ * JPA-слушатель сущности User: любое изменение (пароль, роль) или удаление
+ * сбрасывает закэшированный principal после коммита транзакции.
+ */
+@Component
+public class UserChangeListener {
+    private final PrincipalCache principalCache;
+
+    public UserChangeListener(@Lazy PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        String username = user.getUsername();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principalCache.invalidate(username);
+                }
+            });
+        } else {
+            principalCache.invalidate(username);
+        }
+    }
+}
@@ -5,22 +5,43 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.model.enumination.Role;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 @Getter
 public class UserPrincipal implements UserDetails {
     private final Long id;
     private final String username;
     private final String password;
+    private final Role role;
     private final Collection<? extends GrantedAuthority> authorities;
 
     public UserPrincipal(User user) {
         this.id = user.getId();
         this.username = user.getUsername();
         this.password = user.getPassword();
-        this.authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+        this.role = user.getRole() != null ? user.getRole() : Role.USER;
+        this.authorities = authoritiesFor(this.role);
+    }
+
+    /** Principal, восстановленный из claims JWT без обращения к базе. */
+    public UserPrincipal(Long id, String username, Role role) {
+        this.id = id;
+        this.username = username;
+        this.password = null;
+        this.role = role != null ? role : Role.USER;
+        this.authorities = authoritiesFor(this.role);
+    }
+
+    /** ROLE_USER есть у всех пользователей, включая администраторов; ROLE_ADMIN добавляется к нему. */
+    private static Collection<? extends GrantedAuthority> authoritiesFor(Role role) {
+        if (role == Role.USER) {
+            return Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+        }
+        return List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_" + role));
     }
 
     @Override
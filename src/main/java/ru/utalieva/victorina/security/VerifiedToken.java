@@ -0,0 +1,24 @@
+package ru.utalieva.victorina.security;
+
+import ru.utalieva.victorina.model.enumination.Role;
+
+import java.time.Instant;
+
+/**
+ * Результат однократного разбора и проверки подписи JWT.
+ * userId и role равны null у токенов, выпущенных без этих claims.
+ */
+public record VerifiedToken(String subject, Long userId, Role role, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+
+    /** Principal из claims или null, если в токене нет uid/role. */
+    public UserPrincipal toPrincipal() {
+        if (userId == null || role == null) {
+            return null;
+        }
+        return new UserPrincipal(userId, subject, role);
+    }
+}
@@ -0,0 +1,282 @@
+package ru.utalieva.victorina.service;
+
+import ru.utalieva.victorina.model.dto.QuizResultDTO;
+import ru.utalieva.victorina.model.entity.Option;
+import ru.utalieva.victorina.model.entity.Question;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.entity.QuizResult;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемый "ключ ответов" викторины, собранный один раз из графа сущностей.
+ * Подсчёт результата по нему не обращается к JPA: только примитивные массивы.
+ * Вместе с ключом хранятся название и результаты викторины, нужные для ответа клиенту.
+ *
+ * <p>Для личностного теста характеристики (traits) вариантов и целевые характеристики результатов
+ * сводятся в матрицы по номерам характеристик: вариант добавляет свой вектор к сумме ответов,
+ * результатом становится ближайший к сумме целевой вектор. Прежний ключ resultIndex варианта
+ * превращается в голос за результат: отдельная характеристика на каждый результат с одинаковой
+ * целью, так что ближе всех оказывается результат с наибольшим числом голосов.
+ */
+public final class AnswerKey {
+    private static final int NO_ANSWER = -1;
+    private static final String RESULT_INDEX_TRAIT = "resultIndex";
+
+    private final Long quizId;
+    private final String quizTitle;
+    private final QuizType quizType;
+    private final int timeLimitSeconds;       // 0, если время не ограничено
+    private final int[] correctIndexes;       // правильный вариант по номеру вопроса, -1 если не задан
+    private final int[] optionCounts;         // количество вариантов по номеру вопроса
+    private final int[] optionOffsets;        // начало вариантов вопроса в optionTraits
+    private final int traitCount;
+    private final int[][] optionTraits;       // вектор характеристик варианта, null если он ни на что не влияет
+    private final int[][] resultTargets;      // целевой вектор характеристик результата
+    private final long[] resultIds;
+    private final List<QuizResultDTO> results;
+
+    private AnswerKey(Quiz quiz) {
+        List<Question> questions = quiz.getQuestions();
+        int questionCount = questions.size();
+
+        this.quizId = quiz.getId();
+        this.quizTitle = quiz.getTitle();
+        this.quizType = quiz.getQuizType();
+        this.timeLimitSeconds = quiz.getTimeDuration() != null && quiz.getTimeDuration() > 0
+                ? quiz.getTimeDuration() * 60 : 0; // timeDuration задаётся в минутах
+        this.correctIndexes = new int[questionCount];
+        this.optionCounts = new int[questionCount];
+        this.optionOffsets = new int[questionCount + 1];
+
+        for (int i = 0; i < questionCount; i++) {
+            Question question = questions.get(i);
+            Integer correctIndex = question.getCorrectIndex();
+            correctIndexes[i] = correctIndex != null ? correctIndex : NO_ANSWER;
+            optionCounts[i] = question.getOptions().size();
+            optionOffsets[i + 1] = optionOffsets[i] + optionCounts[i];
+        }
+
+        // Номера характеристик: сначала именованные по алфавиту, затем по одной на результат для голосов resultIndex
+        List<QuizResult> quizResults = quiz.getResults();
+        Map<String, Integer> traitIndexes = new TreeMap<>();
+        boolean votes = false;
+        for (Question question : questions) {
+            for (Option option : question.getOptions()) {
+                votes |= collectTraits(option.getTraits(), traitIndexes);
+            }
+        }
+        for (QuizResult result : quizResults) {
+            collectTraits(result.getPersonalityTraits(), traitIndexes);
+        }
+        int namedTraits = traitIndexes.size();
+        int nextTrait = 0;
+        for (Map.Entry<String, Integer> trait : traitIndexes.entrySet()) {
+            trait.setValue(nextTrait++);
+        }
+        this.traitCount = namedTraits + (votes ? quizResults.size() : 0);
+
+        this.optionTraits = new int[optionOffsets[questionCount]][];
+        for (int i = 0; i < questionCount; i++) {
+            List<Option> options = questions.get(i).getOptions();
+            for (int j = 0; j < options.size(); j++) {
+                Map<String, Integer> traits = options.get(j).getTraits();
+                if (traits == null || traits.isEmpty()) {
+                    continue;
+                }
+                int[] vector = new int[traitCount];
+                traits.forEach((name, value) -> {
+                    if (value == null) {
+                        return;
+                    }
+                    if (RESULT_INDEX_TRAIT.equals(name)) {
+                        // Голос за несуществующий результат не учитывается
+                        if (value >= 0 && value < quizResults.size()) {
+                            vector[namedTraits + value]++;
+                        }
+                    } else {
+                        vector[traitIndexes.get(name)] += value;
+                    }
+                });
+                optionTraits[optionOffsets[i] + j] = vector;
+            }
+        }
+
+        this.resultTargets = new int[quizResults.size()][traitCount];
+        for (int r = 0; r < quizResults.size(); r++) {
+            Map<String, Integer> targets = quizResults.get(r).getPersonalityTraits();
+            if (targets != null) {
+                int[] target = resultTargets[r];
+                targets.forEach((name, value) -> {
+                    if (value != null && !RESULT_INDEX_TRAIT.equals(name)) {
+                        target[traitIndexes.get(name)] = value;
+                    }
+                });
+            }
+            if (votes) {
+                // Одинаковая цель у всех результатов: ближайший - тот, за кого больше голосов
+                resultTargets[r][namedTraits + r] = questionCount;
+            }
+        }
+
+        this.resultIds = quiz.getResults().stream().mapToLong(result -> result.getId()).toArray();
+        this.results = quiz.getResults().stream().map(QuizResultDTO::fromEntity).toList();
+    }
+
+    public static AnswerKey compile(Quiz quiz) {
+        return new AnswerKey(quiz);
+    }
+
+    public Long getQuizId() {
+        return quizId;
+    }
+
+    public String getQuizTitle() {
+        return quizTitle;
+    }
+
+    public QuizType getQuizType() {
+        return quizType;
+    }
+
+    public int getTimeLimitSeconds() {
+        return timeLimitSeconds;
+    }
+
+    public boolean isPersonality() {
+        return QuizType.PERSONALITY.equals(quizType);
+    }
+
+    public int getQuestionCount() {
+        return correctIndexes.length;
+    }
+
+    public int getOptionCount(int questionIndex) {
+        return optionCounts[questionIndex];
+    }
+
+    public int getResultCount() {
+        return resultIds.length;
+    }
+
+    public long getResultId(int resultIndex) {
+        return resultIds[resultIndex];
+    }
+
+    public QuizResultDTO getResult(int resultIndex) {
+        return results.get(resultIndex);
+    }
+
+    /** Номер результата по его id или -1, если у викторины такого результата нет. */
+    public int indexOfResult(Long resultId) {
+        if (resultId != null) {
+            for (int i = 0; i < resultIds.length; i++) {
+                if (resultIds[i] == resultId) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean isValidAnswer(int questionIndex, int optionIndex) {
+        return questionIndex >= 0 && questionIndex < optionCounts.length
+                && optionIndex >= 0 && optionIndex < optionCounts[questionIndex];
+    }
+
+    public boolean isCorrect(int questionIndex, int optionIndex) {
+        return isValidAnswer(questionIndex, optionIndex) && correctIndexes[questionIndex] == optionIndex;
+    }
+
+    public int getTraitCount() {
+        return traitCount;
+    }
+
+    /** Прибавляет вектор характеристик варианта к traitScores; ответ должен быть допустимым. */
+    void addTraits(int[] traitScores, int questionIndex, int optionIndex) {
+        int[] traits = optionTraits[optionOffsets[questionIndex] + optionIndex];
+        if (traits != null) {
+            for (int t = 0; t < traitCount; t++) {
+                traitScores[t] += traits[t];
+            }
+        }
+    }
+
+    /**
+     * Результат с целевым вектором, ближайшим к сумме характеристик (квадрат евклидова расстояния);
+     * при равенстве - первый из них. Ничего не выделяет.
+     *
+     * @return номер результата или -1, если у викторины нет результатов
+     */
+    int nearestResult(int[] traitScores) {
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (int r = 0; r < resultTargets.length; r++) {
+            int[] target = resultTargets[r];
+            long distance = 0;
+            for (int t = 0; t < traitCount && distance < bestDistance; t++) {
+                long delta = (long) traitScores[t] - target[t];
+                distance += delta * delta;
+            }
+            if (distance < bestDistance) {
+                best = r;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /** Число правильных ответов; считается прямо по correctIndexes, без накопителя {@link AnswerTally}. */
+    public int score(Map<Integer, Integer> answers) {
+        int score = 0;
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            Integer questionIndex = answer.getKey();
+            Integer optionIndex = answer.getValue();
+            if (questionIndex != null && optionIndex != null && isCorrect(questionIndex, optionIndex)) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Результат личностного теста по набору ответов, правила см. в {@link AnswerTally#personalityResult()}.
+     * Суммы копятся в массиве на traitCount элементов, своём у каждого вызова.
+     *
+     * @return номер результата или -1, если у викторины нет результатов
+     */
+    public int matchPersonalityResult(Map<Integer, Integer> answers) {
+        int[] traitScores = new int[traitCount];
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            Integer questionIndex = answer.getKey();
+            Integer optionIndex = answer.getValue();
+            if (questionIndex != null && optionIndex != null && isValidAnswer(questionIndex, optionIndex)) {
+                addTraits(traitScores, questionIndex, optionIndex);
+            }
+        }
+        return nearestResult(traitScores);
+    }
+
+    AnswerTally newTally() {
+        return new AnswerTally(this);
+    }
+
+    /** Добавляет именованные характеристики в traitIndexes; возвращает true, если среди них есть resultIndex. */
+    private static boolean collectTraits(Map<String, Integer> traits, Map<String, Integer> traitIndexes) {
+        if (traits == null) {
+            return false;
+        }
+        boolean votes = false;
+        for (String name : traits.keySet()) {
+            if (RESULT_INDEX_TRAIT.equals(name)) {
+                votes = true;
+            } else {
+                traitIndexes.putIfAbsent(name, -1);
+            }
+        }
+        return votes;
+    }
+}
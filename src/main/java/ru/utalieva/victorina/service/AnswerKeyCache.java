@@ -0,0 +1,55 @@
+package ru.utalieva.victorina.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.utalieva.victorina.exception.ResourceNotFoundException;
+import ru.utalieva.victorina.repository.QuizRepository;
+
+/**
+ * Ограниченный по размеру кэш ключей ответов по id викторины.
+ * Сбрасывается после коммита создания или удаления викторины.
+ * Транзакция открывается только при промахе, попадание в кэш не берёт соединение из пула.
+ */
+@Component
+public class AnswerKeyCache {
+    private final QuizRepository quizRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncCache<Long, AnswerKey> cache;
+
+    public AnswerKeyCache(QuizRepository quizRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${quiz.answer-key-cache.max-size:10000}") long maxSize) {
+        this.quizRepository = quizRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public AnswerKey get(Long quizId) {
+        return CacheLoads.get(cache, quizId, this::load);
+    }
+
+    public void invalidate(Long quizId) {
+        cache.synchronous().invalidate(quizId);
+    }
+
+    @TransactionalEventListener
+    public void onQuizChanged(QuizChangedEvent event) {
+        invalidate(event.quizId());
+    }
+
+    private AnswerKey load(Long quizId) {
+        // Вопросы, варианты и результаты догружаются лениво, поэтому сборка ключа идёт в транзакции
+        return transactionTemplate.execute(status -> quizRepository.findPlayById(quizId)
+                .map(AnswerKey::compile)
+                .orElseThrow(() -> new ResourceNotFoundException("Quiz not found")));
+    }
+}
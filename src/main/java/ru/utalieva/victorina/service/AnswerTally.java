@@ -0,0 +1,39 @@
+package ru.utalieva.victorina.service;
+
+/**
+ * Накопительный итог по ответам: счёт стандартной викторины и сумма характеристик личностного теста.
+ * Каждый ответ учитывается за O(число характеристик) без выделения памяти, результат личностного теста
+ * ищется по матрице ключа, см. {@link AnswerKey#nearestResult}. Не потокобезопасен.
+ */
+final class AnswerTally {
+    private final AnswerKey answerKey;
+    private final int[] traitScores;
+    private int score;
+
+    AnswerTally(AnswerKey answerKey) {
+        this.answerKey = answerKey;
+        this.traitScores = new int[answerKey.getTraitCount()];
+    }
+
+    /** Учитывает ответ; ответ должен быть допустимым для ключа, см. {@link AnswerKey#isValidAnswer}. */
+    void add(int questionIndex, int optionIndex) {
+        if (answerKey.isCorrect(questionIndex, optionIndex)) {
+            score++;
+        }
+        answerKey.addTraits(traitScores, questionIndex, optionIndex);
+    }
+
+    int score() {
+        return score;
+    }
+
+    /**
+     * Результат личностного теста: ближайший к сумме характеристик ответов.
+     * Без ответов и характеристик выбирается первый результат.
+     *
+     * @return номер результата или -1, если у викторины нет результатов
+     */
+    int personalityResult() {
+        return answerKey.nearestResult(traitScores);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.utalieva.victorina.service;
+
+import ru.utalieva.victorina.model.dto.AttemptScore;
+
+/**
+ * Публикуется QuizAttemptService, когда попытка завершена и сохранена.
+ */
+public record AttemptCompletedEvent(Long quizId, AttemptScore score) {
+}
@@ -0,0 +1,125 @@
+package ru.utalieva.victorina.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Активная попытка, которая живёт только в памяти до завершения или истечения времени.
+ * Номер попытки выдаётся из quiz_attempts_id_seq при старте, строка в базе появляется
+ * один раз, когда попытка закончена.
+ */
+public final class AttemptSession {
+    private final Long attemptId;
+    private final Long userId;
+    private final Long quizId;
+    private final int totalQuestions;
+    private final LocalDateTime startTime;
+    private final Instant startedAt;
+    private final Instant deadline;   // null, если время не ограничено
+    private final Instant expiresAt;  // после этого момента попытка закрывается сервером
+    private final Map<Integer, Integer> answers = new HashMap<>();
+    private final AnswerTally tally;
+
+    private AttemptSession(Long attemptId, Long userId, Long quizId, int totalQuestions, Instant startedAt,
+                           Instant deadline, Instant expiresAt, AnswerTally tally) {
+        this.attemptId = attemptId;
+        this.userId = userId;
+        this.quizId = quizId;
+        this.totalQuestions = totalQuestions;
+        this.startedAt = startedAt;
+        this.startTime = LocalDateTime.ofInstant(startedAt, ZoneId.systemDefault());
+        this.deadline = deadline;
+        this.expiresAt = expiresAt;
+        this.tally = tally;
+    }
+
+    /**
+     * @param gracePeriod запас на сетевые задержки после дедлайна
+     * @param maxLifetime сколько живёт попытка викторины без ограничения времени
+     */
+    public static AttemptSession start(Long attemptId, Long userId, AnswerKey answerKey, Instant now,
+                                       Duration gracePeriod, Duration maxLifetime) {
+        Instant deadline = answerKey.getTimeLimitSeconds() > 0
+                ? now.plusSeconds(answerKey.getTimeLimitSeconds()) : null;
+        Instant expiresAt = deadline != null ? deadline.plus(gracePeriod) : now.plus(maxLifetime);
+        return new AttemptSession(attemptId, userId, answerKey.getQuizId(), answerKey.getQuestionCount(), now,
+                deadline, expiresAt, answerKey.newTally());
+    }
+
+    public Long getAttemptId() {
+        return attemptId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getQuizId() {
+        return quizId;
+    }
+
+    public int getTotalQuestions() {
+        return totalQuestions;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    public LocalDateTime getDeadlineTime() {
+        return deadline != null ? LocalDateTime.ofInstant(deadline, ZoneId.systemDefault()) : null;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+
+    /** Затраченное время в секундах, не больше ограничения викторины. */
+    public int elapsedSeconds(Instant now) {
+        Instant end = deadline != null && now.isAfter(deadline) ? deadline : now;
+        return (int) Math.max(0, Duration.between(startedAt, end).toSeconds());
+    }
+
+    /**
+     * Принимает ответ и сразу учитывает его в счёте. Ответ на вопрос даётся один раз.
+     * Ответ должен быть допустимым для ключа этой викторины, см. {@link AnswerKey#isValidAnswer}.
+     *
+     * @return false, если на этот вопрос уже ответили
+     */
+    public synchronized boolean answer(int questionIndex, int optionIndex) {
+        if (answers.putIfAbsent(questionIndex, optionIndex) != null) {
+            return false;
+        }
+        tally.add(questionIndex, optionIndex);
+        return true;
+    }
+
+    public synchronized Map<Integer, Integer> getAnswers() {
+        return new HashMap<>(answers);
+    }
+
+    public synchronized int getAnsweredCount() {
+        return answers.size();
+    }
+
+    public synchronized int getScore() {
+        return tally.score();
+    }
+
+    /** Номер результата личностного теста по принятым ответам или -1, если у викторины нет результатов. */
+    public synchronized int getPersonalityResult() {
+        return tally.personalityResult();
+    }
+}
@@ -0,0 +1,30 @@
+package ru.utalieva.victorina.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище активных попыток. Контракт рассчитан и на внешнее хранилище вроде Redis
+ * (hash на попытку, индекс по пользователю и викторине, sorted set по expiresAt);
+ * в приложении используется реализация в памяти процесса.
+ */
+public interface AttemptSessionStore {
+
+    /**
+     * Сохраняет попытку; прежняя активная попытка того же пользователя в этой викторине заменяется.
+     *
+     * @return заменённая попытка, если она была: из хранилища она уже убрана
+     */
+    Optional<AttemptSession> save(AttemptSession session);
+
+    Optional<AttemptSession> find(Long attemptId);
+
+    Optional<AttemptSession> findActive(Long userId, Long quizId);
+
+    /** Забирает попытку из хранилища. Для одной попытки непустой результат возвращается ровно один раз. */
+    Optional<AttemptSession> remove(Long attemptId);
+
+    /** Забирает все попытки, у которых к моменту now истекло время. */
+    List<AttemptSession> removeExpired(Instant now);
+}
@@ -0,0 +1,32 @@
+package ru.utalieva.victorina.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Раз в тик забирает из хранилища попытки с истёкшим временем и сохраняет их как просроченные.
+ */
+@Component
+@RequiredArgsConstructor
+public class AttemptSessionSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(AttemptSessionSweeper.class);
+
+    private final AttemptSessionStore attemptSessionStore;
+    private final QuizAttemptService quizAttemptService;
+
+    @Scheduled(fixedDelayString = "${quiz.session.sweep-interval:PT1S}")
+    public void sweep() {
+        for (AttemptSession session : attemptSessionStore.removeExpired(Instant.now())) {
+            try {
+                quizAttemptService.expire(session);
+            } catch (RuntimeException e) {
+                logger.error("Failed to save expired attempt {}", session.getAttemptId(), e);
+            }
+        }
+    }
+}
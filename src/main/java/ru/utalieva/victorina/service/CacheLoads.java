@@ -0,0 +1,42 @@
+package ru.utalieva.victorina.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Загрузка в кэш вне блокировки: Cache.get и ConcurrentHashMap.computeIfAbsent вызывают загрузчик
+ * под монитором, и потоки, которым нужен тот же участок таблицы, ждут всё время запроса к базе.
+ * Здесь в кэш сразу кладётся незавершённый future, загрузка идёт в вызывающем потоке
+ * (в его транзакции, если она открыта), остальные потоки ждут future без закрепления.
+ */
+public final class CacheLoads {
+    private CacheLoads() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> future = cache.get(key, (k, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(loader.apply(key));
+            } catch (RuntimeException | Error e) {
+                // Неудачная загрузка удаляется из кэша самим Caffeine
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ru.utalieva.victorina.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Активные попытки в памяти процесса. Сроки истечения ведёт {@link TimingWheel},
+ * поэтому поиск истёкших попыток не перебирает все активные.
+ * Хранилище не переживает перезапуск: попытки, начатые до остановки, теряются вместе с ответами,
+ * и участникам нужно начать их заново. При остановке число потерянных попыток пишется в лог.
+ */
+@Component
+public class InMemoryAttemptSessionStore implements AttemptSessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryAttemptSessionStore.class);
+    private static final int WHEEL_SIZE = 512;
+
+    private final Map<Long, AttemptSession> sessions = new ConcurrentHashMap<>();
+    private final Map<ActiveKey, Long> active = new ConcurrentHashMap<>();
+    private final TimingWheel<Long> expirations;
+
+    public InMemoryAttemptSessionStore(@Value("${quiz.session.sweep-interval:PT1S}") Duration tick) {
+        this.expirations = new TimingWheel<>(WHEEL_SIZE, tick, Instant.now());
+    }
+
+    @Override
+    public Optional<AttemptSession> save(AttemptSession session) {
+        AttemptSession[] replaced = new AttemptSession[1];
+        active.compute(new ActiveKey(session.getUserId(), session.getQuizId()), (key, previousId) -> {
+            if (previousId != null && !previousId.equals(session.getAttemptId())) {
+                replaced[0] = sessions.remove(previousId);
+            }
+            sessions.put(session.getAttemptId(), session);
+            return session.getAttemptId();
+        });
+        // Таймер заменённой попытки останется в колесе и при срабатывании не найдёт сессию
+        expirations.schedule(session.getAttemptId(), session.getExpiresAt());
+        return Optional.ofNullable(replaced[0]);
+    }
+
+    @Override
+    public Optional<AttemptSession> find(Long attemptId) {
+        return Optional.ofNullable(sessions.get(attemptId));
+    }
+
+    @Override
+    public Optional<AttemptSession> findActive(Long userId, Long quizId) {
+        Long attemptId = active.get(new ActiveKey(userId, quizId));
+        return attemptId != null ? find(attemptId) : Optional.empty();
+    }
+
+    @Override
+    public Optional<AttemptSession> remove(Long attemptId) {
+        AttemptSession session = sessions.remove(attemptId);
+        if (session != null) {
+            active.remove(new ActiveKey(session.getUserId(), session.getQuizId()), attemptId);
+        }
+        return Optional.ofNullable(session);
+    }
+
+    @Override
+    public List<AttemptSession> removeExpired(Instant now) {
+        List<AttemptSession> expired = new ArrayList<>();
+        for (Long attemptId : expirations.advance(now)) {
+            AttemptSession session = sessions.get(attemptId);
+            if (session != null && session.isExpired(now) && sessions.remove(attemptId, session)) {
+                active.remove(new ActiveKey(session.getUserId(), session.getQuizId()), attemptId);
+                expired.add(session);
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!sessions.isEmpty()) {
+            logger.warn("{} active attempts are lost on shutdown and must be started again", sessions.size());
+        }
+    }
+
+    private record ActiveKey(Long userId, Long quizId) {
+    }
+}
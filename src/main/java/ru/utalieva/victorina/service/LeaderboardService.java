@@ -0,0 +1,83 @@
+package ru.utalieva.victorina.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.utalieva.victorina.model.dto.AttemptScore;
+import ru.utalieva.victorina.model.dto.LeaderboardEntryDTO;
+import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.repository.QuizAttemptRepository;
+import ru.utalieva.victorina.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинги викторин в памяти. Рейтинг викторины строится из quiz_attempts
+ * при первом обращении после запуска и дальше обновляется по каждой завершённой попытке.
+ */
+@Service
+@RequiredArgsConstructor
+public class LeaderboardService {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+    private static final int MAX_LIMIT = 100;
+
+    private final QuizAttemptRepository quizAttemptRepository;
+    private final UserRepository userRepository;
+    private final AnswerKeyCache answerKeyCache;
+    // Caffeine без ограничений вместо ConcurrentHashMap: загрузка из базы идёт вне блокировки, см. CacheLoads
+    private final AsyncCache<Long, QuizLeaderboard> leaderboards = Caffeine.newBuilder().buildAsync();
+
+    public int positionOf(Long quizId, AttemptScore attempt) {
+        return leaderboard(quizId).positionOf(attempt);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LeaderboardEntryDTO> getLeaderboard(Long quizId, int limit) {
+        if (answerKeyCache.get(quizId).isPersonality()) {
+            // Для личностного теста счёт у всех одинаковый, рейтинг не ведётся
+            return List.of();
+        }
+
+        List<AttemptScore> top = leaderboard(quizId).top(Math.max(1, Math.min(limit, MAX_LIMIT)));
+        Map<Long, String> usernames = userRepository.findAllById(top.stream().map(AttemptScore::userId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            AttemptScore attempt = top.get(i);
+            entries.add(new LeaderboardEntryDTO(i + 1, attempt.userId(), usernames.get(attempt.userId()),
+                    attempt.score(), attempt.timeSpent()));
+        }
+        return entries;
+    }
+
+    @TransactionalEventListener
+    public void onAttemptCompleted(AttemptCompletedEvent event) {
+        leaderboard(event.quizId()).offer(event.score());
+    }
+
+    @TransactionalEventListener
+    public void onQuizChanged(QuizChangedEvent event) {
+        leaderboards.synchronous().invalidate(event.quizId());
+    }
+
+    private QuizLeaderboard leaderboard(Long quizId) {
+        return CacheLoads.get(leaderboards, quizId, this::load);
+    }
+
+    private QuizLeaderboard load(Long quizId) {
+        QuizLeaderboard leaderboard = new QuizLeaderboard();
+        quizAttemptRepository.findCompletedScoresByQuizId(quizId).forEach(leaderboard::offer);
+        logger.debug("Loaded leaderboard for quiz {} with {} players", quizId, leaderboard.size());
+        return leaderboard;
+    }
+}
@@ -0,0 +1,253 @@
+package ru.utalieva.victorina.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.utalieva.victorina.model.dto.LiveDistributionDTO;
+import ru.utalieva.victorina.model.dto.LiveRoomDTO;
+import ru.utalieva.victorina.model.enumination.LiveRoomState;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Живая комната: ведущий листает вопросы, участники отвечают на текущий.
+ * Ответ только увеличивает счётчики и помечает комнату изменённой; рассылку
+ * распределения делает {@link LiveRoomService} не чаще заданного интервала.
+ * Ответы принимаются под блокировкой чтения и не мешают друг другу, а смена вопроса и закрытие
+ * берут блокировку записи: после них ни один ответ на прежний вопрос уже не будет принят.
+ * События комнаты уходят через одну последовательную полосу, поэтому подписчики получают их по порядку.
+ */
+final class LiveRoom {
+    private static final Logger logger = LoggerFactory.getLogger(LiveRoom.class);
+
+    private final String code;
+    private final Long presenterId;
+    private final AnswerKey answerKey;
+    private final Instant createdAt = Instant.now();
+    private final Map<Long, AttemptSession> participants = new ConcurrentHashMap<>();
+    // Время последнего принятого ответа участника: по нему считается затраченное время в итогах
+    private final Map<Long, Instant> lastAnswers = new ConcurrentHashMap<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Runnable> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile LiveRoomState state = LiveRoomState.LOBBY;
+    private volatile Round round;
+    private volatile Instant startedAt;
+
+    LiveRoom(String code, Long presenterId, AnswerKey answerKey) {
+        this.code = code;
+        this.presenterId = presenterId;
+        this.answerKey = answerKey;
+    }
+
+    String getCode() {
+        return code;
+    }
+
+    AnswerKey getAnswerKey() {
+        return answerKey;
+    }
+
+    Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /** Когда ведущий показал первый вопрос; null, пока комната в лобби. */
+    Instant getStartedAt() {
+        return startedAt;
+    }
+
+    LiveRoomState getState() {
+        return state;
+    }
+
+    boolean isPresenter(Long userId) {
+        return presenterId.equals(userId);
+    }
+
+    Map<Long, AttemptSession> getParticipants() {
+        return participants;
+    }
+
+    List<SseEmitter> getSubscribers() {
+        return subscribers;
+    }
+
+    int currentQuestion() {
+        Round current = round;
+        return current != null ? current.index() : -1;
+    }
+
+    /** Показывает следующий вопрос; false, если вопросы закончились. */
+    boolean nextQuestion() {
+        lock.writeLock().lock();
+        try {
+            int next = currentQuestion() + 1;
+            if (state == LiveRoomState.FINISHED || next >= answerKey.getQuestionCount()) {
+                return false;
+            }
+            if (next == 0) {
+                startedAt = Instant.now();
+            }
+            round = new Round(next, new AtomicIntegerArray(answerKey.getOptionCount(next)), new AtomicInteger());
+            state = LiveRoomState.QUESTION;
+            dirty.set(true);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Закрывает комнату для ответов и снимает участников, ответивших хотя бы на один вопрос:
+     * только их попытки сохраняются и попадают в итоги. Снимок берётся под той же блокировкой,
+     * поэтому ответ, принятый после него, невозможен.
+     */
+    List<AttemptSession> finish() {
+        lock.writeLock().lock();
+        try {
+            state = LiveRoomState.FINISHED;
+            List<AttemptSession> answered = new ArrayList<>(participants.size());
+            for (AttemptSession participant : participants.values()) {
+                if (participant.getAnsweredCount() > 0) {
+                    answered.add(participant);
+                }
+            }
+            return answered;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Принимает ответ участника на текущий вопрос.
+     *
+     * @return false, если участник уже отвечал на этот вопрос
+     */
+    boolean answer(AttemptSession participant, int questionIndex, int optionIndex) {
+        lock.readLock().lock();
+        try {
+            Round current = round;
+            if (state != LiveRoomState.QUESTION || current == null || current.index() != questionIndex) {
+                throw new IllegalStateException("Вопрос " + questionIndex + " сейчас не принимает ответы");
+            }
+            if (!participant.answer(questionIndex, optionIndex)) {
+                return false;
+            }
+            lastAnswers.put(participant.getUserId(), Instant.now());
+            current.counts().incrementAndGet(optionIndex);
+            current.answered().incrementAndGet();
+            dirty.set(true);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void markDirty() {
+        dirty.set(true);
+    }
+
+    /** Забирает отметку об изменениях; true, если с прошлой рассылки что-то изменилось. */
+    boolean takeDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    boolean tryStartSending() {
+        return sending.compareAndSet(false, true);
+    }
+
+    void sendingDone() {
+        sending.set(false);
+    }
+
+    /**
+     * Ставит рассылку в полосу комнаты: задачи выполняются по одной в порядке постановки,
+     * а в пуле executor комната занимает не больше одного потока.
+     */
+    void enqueue(Runnable task, Executor executor) {
+        outbox.add(task);
+        scheduleDrain(executor);
+    }
+
+    private void scheduleDrain(Executor executor) {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(executor));
+        } catch (RuntimeException e) {
+            draining.set(false);
+            throw e;
+        }
+    }
+
+    private void drain(Executor executor) {
+        try {
+            Runnable task;
+            while ((task = outbox.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // Ошибка одной рассылки не должна останавливать следующие
+                    logger.error("Live room {} event delivery failed: {}", code, e.getMessage(), e);
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        // Задача могла встать в очередь между последним poll и сбросом флага
+        if (!outbox.isEmpty()) {
+            scheduleDrain(executor);
+        }
+    }
+
+    LiveRoomDTO toDto() {
+        return new LiveRoomDTO(code, answerKey.getQuizId(), answerKey.getQuizTitle(), state, currentQuestion(),
+                answerKey.getQuestionCount(), participants.size());
+    }
+
+    LiveDistributionDTO distribution() {
+        Round current = round;
+        if (current == null) {
+            return new LiveDistributionDTO(-1, new int[0], 0, participants.size());
+        }
+        int[] counts = new int[current.counts().length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = current.counts().get(i);
+        }
+        return new LiveDistributionDTO(current.index(), counts, current.answered().get(), participants.size());
+    }
+
+    /**
+     * Затраченное участником время: от показа первого вопроса до его последнего ответа.
+     * Считается от старта комнаты, а не от подписки, чтобы опоздавшие не получали преимущества.
+     */
+    int elapsedSeconds(AttemptSession participant) {
+        Instant start = startedAt;
+        Instant lastAnswer = lastAnswers.get(participant.getUserId());
+        if (start == null || lastAnswer == null) {
+            return 0;
+        }
+        return (int) Math.max(0, Duration.between(start, lastAnswer).toSeconds());
+    }
+
+    private record Round(int index, AtomicIntegerArray counts, AtomicInteger answered) {
+    }
+}
@@ -0,0 +1,298 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.utalieva.victorina.exception.ResourceNotFoundException;
+import ru.utalieva.victorina.model.dto.AnswerResultDTO;
+import ru.utalieva.victorina.model.dto.LeaderboardEntryDTO;
+import ru.utalieva.victorina.model.dto.LiveRoomDTO;
+import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.model.enumination.LiveRoomState;
+import ru.utalieva.victorina.repository.UserRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Живые комнаты в памяти и рассылка их событий по SSE.
+ * Смена вопроса и итоги рассылаются сразу, а распределение ответов копится в счётчиках комнаты
+ * и уходит не чаще раза в live.broadcast-interval: число рассылок не зависит от числа ответов,
+ * а JSON события сериализуется один раз на всех подписчиков. События комнаты отправляются
+ * по очереди через её полосу в общем пуле applicationTaskExecutor.
+ */
+@Service
+public class LiveRoomService {
+    private static final Logger logger = LoggerFactory.getLogger(LiveRoomService.class);
+    private static final String CODE_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final int CODE_LENGTH = 6;
+
+    private final AnswerKeyCache answerKeyCache;
+    private final QuizAttemptService quizAttemptService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration emitterTimeout;
+    private final Duration roomLifetime;
+    private final Map<String, LiveRoom> rooms = new ConcurrentHashMap<>();
+    // Медленный подписчик не должен задерживать рассылку по другим комнатам
+    private final TaskExecutor sender;
+
+    public LiveRoomService(AnswerKeyCache answerKeyCache,
+                           QuizAttemptService quizAttemptService,
+                           UserRepository userRepository,
+                           ObjectMapper objectMapper,
+                           @Qualifier("applicationTaskExecutor") TaskExecutor sender,
+                           @Value("${live.sse-timeout:PT30M}") Duration emitterTimeout,
+                           @Value("${live.room-lifetime:PT6H}") Duration roomLifetime) {
+        this.answerKeyCache = answerKeyCache;
+        this.quizAttemptService = quizAttemptService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.sender = sender;
+        this.emitterTimeout = emitterTimeout;
+        this.roomLifetime = roomLifetime;
+    }
+
+    public LiveRoomDTO createRoom(Long quizId, Long presenterId) {
+        AnswerKey answerKey = answerKeyCache.get(quizId);
+        String code;
+        LiveRoom room;
+        do {
+            code = randomCode();
+            room = new LiveRoom(code, presenterId, answerKey);
+        } while (rooms.putIfAbsent(code, room) != null);
+        logger.info("Live room {} created for quiz {} by user {}", code, quizId, presenterId);
+        return room.toDto();
+    }
+
+    public LiveRoomDTO getRoom(String code) {
+        return room(code).toDto();
+    }
+
+    /** Подписка на события комнаты; любой подписавшийся, кроме ведущего, становится участником. */
+    public SseEmitter subscribe(String code, Long userId) {
+        LiveRoom room = room(code);
+        if (!room.isPresenter(userId) && room.getState() != LiveRoomState.FINISHED
+                && !room.getParticipants().containsKey(userId)) {
+            // Номер попытки берётся из последовательности вне блокировки карты;
+            // при двух одновременных подписках лишний номер просто не используется
+            AttemptSession participant = quizAttemptService.startLiveAttempt(userId, room.getAnswerKey());
+            room.getParticipants().putIfAbsent(userId, participant);
+            room.markDirty();
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        emitter.onCompletion(() -> room.getSubscribers().remove(emitter));
+        emitter.onTimeout(() -> room.getSubscribers().remove(emitter));
+        emitter.onError(e -> room.getSubscribers().remove(emitter));
+        room.getSubscribers().add(emitter);
+
+        Set<DataWithMediaType> state = event("state", room.toDto());
+        room.enqueue(() -> send(emitter, state), sender);
+        return emitter;
+    }
+
+    public LiveRoomDTO nextQuestion(String code, Long userId) {
+        LiveRoom room = presenterRoom(code, userId);
+        if (!room.nextQuestion()) {
+            return finish(code, userId);
+        }
+        broadcast(room, event("state", room.toDto()));
+        return room.toDto();
+    }
+
+    public LiveRoomDTO finish(String code, Long userId) {
+        LiveRoom room = presenterRoom(code, userId);
+        close(room);
+        return room.toDto();
+    }
+
+    public AnswerResultDTO answer(String code, Long userId, int questionIndex, Integer optionIndex) {
+        LiveRoom room = room(code);
+        AttemptSession participant = room.getParticipants().get(userId);
+        if (participant == null) {
+            throw new IllegalStateException("Сначала подключитесь к комнате " + code);
+        }
+        AnswerKey answerKey = room.getAnswerKey();
+        if (optionIndex == null || !answerKey.isValidAnswer(questionIndex, optionIndex)) {
+            throw new IllegalArgumentException("Некорректный ответ на вопрос " + questionIndex);
+        }
+        if (!room.answer(participant, questionIndex, optionIndex)) {
+            throw new IllegalStateException("На вопрос " + questionIndex + " уже дан ответ");
+        }
+
+        AnswerResultDTO result = new AnswerResultDTO();
+        result.setQuestionIndex(questionIndex);
+        result.setAnsweredCount(participant.getAnsweredCount());
+        result.setTotalQuestions(participant.getTotalQuestions());
+        if (!answerKey.isPersonality()) {
+            result.setCorrect(answerKey.isCorrect(questionIndex, optionIndex));
+            result.setScore(participant.getScore());
+        }
+        return result;
+    }
+
+    /** Рассылает накопленные распределения ответов; комнаты без изменений пропускаются. */
+    @Scheduled(fixedRateString = "${live.broadcast-interval:PT0.25S}")
+    public void broadcastDistributions() {
+        Instant now = Instant.now();
+        for (LiveRoom room : rooms.values()) {
+            try {
+                if (room.getCreatedAt().plus(roomLifetime).isBefore(now)) {
+                    logger.info("Live room {} reached its lifetime and is closed", room.getCode());
+                    close(room);
+                } else if (room.takeDirty()) {
+                    flushDistribution(room);
+                }
+            } catch (RuntimeException e) {
+                // Ошибка одной комнаты не должна останавливать рассылку по остальным
+                logger.error("Broadcast failed for live room {}: {}", room.getCode(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Закрывает комнату для ответов; сохранение попыток и итоги идут в полосе комнаты после уже
+     * поставленных событий, не в потоке планировщика.
+     */
+    private void close(LiveRoom room) {
+        if (rooms.remove(room.getCode(), room)) {
+            List<AttemptSession> participants = room.finish();
+            room.enqueue(() -> complete(room, participants), sender);
+        }
+    }
+
+    /** Сохраняет попытки и рассылает итоги; каждый подписчик закрывается, даже если сохранить не удалось. */
+    private void complete(LiveRoom room, List<AttemptSession> participants) {
+        Set<DataWithMediaType> state = event("state", room.toDto());
+        Set<DataWithMediaType> results;
+        try {
+            if (!participants.isEmpty()) {
+                // Все попытки комнаты сохраняются одной пачкой
+                quizAttemptService.completeLiveAttempts(participants, room.getAnswerKey(), room.getStartedAt(),
+                        room::elapsedSeconds);
+            }
+            results = event("results", standings(room, participants));
+        } catch (RuntimeException e) {
+            logger.error("Failed to complete live room {}: {}", room.getCode(), e.getMessage(), e);
+            for (SseEmitter emitter : room.getSubscribers()) {
+                send(emitter, state);
+                emitter.completeWithError(e);
+            }
+            return;
+        }
+        for (SseEmitter emitter : room.getSubscribers()) {
+            send(emitter, state);
+            send(emitter, results);
+            emitter.complete();
+        }
+    }
+
+    private List<LeaderboardEntryDTO> standings(LiveRoom room, List<AttemptSession> participants) {
+        if (room.getAnswerKey().isPersonality()) {
+            return List.of();
+        }
+        List<AttemptSession> ranked = new ArrayList<>(participants);
+        ranked.sort(Comparator.comparingInt(AttemptSession::getScore).reversed()
+                .thenComparingInt(room::elapsedSeconds));
+        Map<Long, String> usernames = userRepository.findAllById(ranked.stream().map(AttemptSession::getUserId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            AttemptSession session = ranked.get(i);
+            entries.add(new LeaderboardEntryDTO(i + 1, session.getUserId(), usernames.get(session.getUserId()),
+                    session.getScore(), room.elapsedSeconds(session)));
+        }
+        return entries;
+    }
+
+    private void broadcast(LiveRoom room, Set<DataWithMediaType> event) {
+        room.enqueue(() -> room.getSubscribers().forEach(emitter -> send(emitter, event)), sender);
+    }
+
+    private void flushDistribution(LiveRoom room) {
+        if (!room.tryStartSending()) {
+            // Предыдущая рассылка ещё идёт: отправим свежие счётчики на следующем тике
+            room.markDirty();
+            return;
+        }
+        Set<DataWithMediaType> event = event("distribution", room.distribution());
+        try {
+            room.enqueue(() -> {
+                try {
+                    room.getSubscribers().forEach(emitter -> send(emitter, event));
+                } finally {
+                    room.sendingDone();
+                }
+            }, sender);
+        } catch (RuntimeException e) {
+            room.sendingDone();
+            throw e;
+        }
+    }
+
+    private void send(SseEmitter emitter, Set<DataWithMediaType> event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился; подписка уберётся в onError/onCompletion
+            emitter.completeWithError(e);
+        }
+    }
+
+    /** Событие собирается один раз и отправляется всем подписчикам без повторной сериализации. */
+    private Set<DataWithMediaType> event(String name, Object payload) {
+        try {
+            return SseEmitter.event().name(name)
+                    .data(objectMapper.writeValueAsString(payload), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + name, e);
+        }
+    }
+
+    private LiveRoom room(String code) {
+        LiveRoom room = rooms.get(code);
+        if (room == null) {
+            throw new ResourceNotFoundException("Live room not found");
+        }
+        return room;
+    }
+
+    private LiveRoom presenterRoom(String code, Long userId) {
+        LiveRoom room = room(code);
+        if (!room.isPresenter(userId)) {
+            throw new IllegalStateException("Управлять комнатой может только ведущий");
+        }
+        return room;
+    }
+
+    private static String randomCode() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder code = new StringBuilder(CODE_LENGTH);
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code.append(CODE_ALPHABET.charAt(random.nextInt(CODE_ALPHABET.length())));
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.utalieva.victorina.model.converter.AnswerCodec;
+import ru.utalieva.victorina.repository.QuizAttemptPartitionRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Обслуживание секций quiz_attempts: при старте и по расписанию создаёт месячные секции
+ * на months-ahead месяцев вперёд, а при включённой архивации отключает секции старше
+ * retention-months, выгружает их в archive.dir как NDJSON в gzip и удаляет.
+ * Архивные попытки пропадают из истории и, после перезапуска, из рейтингов; сводная статистика
+ * викторин их сохраняет: доля секции при отключении откладывается в архивную статистику,
+ * с которой начинается пересчёт (см. {@link QuizStatsService#archive}).
+ */
+@Service
+public class QuizAttemptPartitionService {
+    private static final Logger logger = LoggerFactory.getLogger(QuizAttemptPartitionService.class);
+
+    private final QuizAttemptPartitionRepository partitionRepository;
+    private final QuizStatsService quizStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate exportTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int monthsAhead;
+    private final boolean archiveEnabled;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    public QuizAttemptPartitionService(QuizAttemptPartitionRepository partitionRepository,
+                                       QuizStatsService quizStatsService,
+                                       PlatformTransactionManager transactionManager,
+                                       ObjectMapper objectMapper,
+                                       @Value("${quiz.attempts.partitions.months-ahead:2}") int monthsAhead,
+                                       @Value("${quiz.attempts.archive.enabled:false}") boolean archiveEnabled,
+                                       @Value("${quiz.attempts.archive.retention-months:12}") int retentionMonths,
+                                       @Value("${quiz.attempts.archive.dir:data/archive}") Path archiveDir) {
+        this.partitionRepository = partitionRepository;
+        this.quizStatsService = quizStatsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Выгрузка и подсчёт статистики читают секцию курсором, а курсор живёт только внутри транзакции
+        this.exportTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.monthsAhead = monthsAhead;
+        this.archiveEnabled = archiveEnabled;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = archiveDir;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        // Попытки, записанные до создания секции, лежат в секции по умолчанию и будут перенесены
+        ensurePartitions(YearMonth.now());
+    }
+
+    @Scheduled(cron = "${quiz.attempts.maintenance-cron:0 30 3 * * *}")
+    public void maintain() {
+        YearMonth now = YearMonth.now();
+        ensurePartitions(now);
+        if (archiveEnabled) {
+            archiveBefore(now.minusMonths(retentionMonths));
+        }
+    }
+
+    public void ensurePartitions(YearMonth current) {
+        Set<YearMonth> existing = new HashSet<>();
+        partitionRepository.findAttachedPartitions()
+                .forEach(name -> QuizAttemptPartitionRepository.monthOf(name).ifPresent(existing::add));
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!existing.contains(month)) {
+                transactionTemplate.executeWithoutResult(status -> partitionRepository.createPartition(month));
+                logger.info("Created partition {}", QuizAttemptPartitionRepository.partitionName(month));
+            }
+        }
+    }
+
+    /** Архивирует секции месяцев раньше cutoff, а также секции, архивация которых была прервана. */
+    public void archiveBefore(YearMonth cutoff) {
+        // Сначала оставшиеся после сбоя: они уже отключены от quiz_attempts
+        partitionRepository.findDetachedPartitions().forEach(this::exportAndDrop);
+
+        for (String name : partitionRepository.findAttachedPartitions()) {
+            YearMonth month = QuizAttemptPartitionRepository.monthOf(name).orElseThrow();
+            if (month.isBefore(cutoff)) {
+                try {
+                    // Секция старше retention-months, новых попыток в ней уже не бывает
+                    List<QuizStatsDelta> stats =
+                            exportTransactionTemplate.execute(status -> quizStatsService.collectPartition(name));
+                    transactionTemplate.executeWithoutResult(status -> {
+                        partitionRepository.detachPartition(name);
+                        quizStatsService.archive(stats);
+                    });
+                } catch (DataAccessException e) {
+                    // Чаще всего не дождались блокировки quiz_attempts; секция остаётся подключённой до следующего запуска
+                    logger.warn("Failed to detach partition {}, will retry on next run", name, e);
+                    continue;
+                }
+                exportAndDrop(name);
+            }
+        }
+    }
+
+    private void exportAndDrop(String name) {
+        try {
+            Path file = export(name);
+            partitionRepository.dropPartition(name);
+            logger.info("Archived partition {} to {}", name, file);
+        } catch (RuntimeException e) {
+            // Секция остаётся отключённой и будет выгружена при следующем запуске
+            logger.error("Failed to archive partition {}", name, e);
+        }
+    }
+
+    private Path export(String name) {
+        try {
+            Files.createDirectories(archiveDir);
+            Path file = archiveDir.resolve(name + ".ndjson.gz");
+            Path tmp = archiveDir.resolve(name + ".ndjson.gz.tmp");
+            long rows;
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                rows = exportTransactionTemplate.execute(status -> writeRows(name, out));
+            }
+            // Файл должен быть на диске до удаления секции
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Exported {} attempts from {}", rows, name);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось выгрузить секцию " + name, e);
+        }
+    }
+
+    private long writeRows(String name, OutputStream out) {
+        long[] rows = {0};
+        partitionRepository.forEachRow(name, rs -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", rs.getLong("id"));
+            row.put("quizId", rs.getLong("quiz_id"));
+            row.put("userId", rs.getLong("user_id"));
+            row.put("score", rs.getInt("score"));
+            row.put("totalQuestions", rs.getInt("total_questions"));
+            row.put("timeSpent", rs.getInt("time_spent"));
+            row.put("startTime", toLocal(rs.getTimestamp("start_time")));
+            row.put("endTime", toLocal(rs.getTimestamp("end_time")));
+            row.put("isCompleted", rs.getBoolean("is_completed"));
+            row.put("expired", rs.getBoolean("expired"));
+            row.put("answers", AnswerCodec.decode(rs.getBytes("user_answers")));
+            row.put("personalityResultId", rs.getObject("personality_result_id"));
+            try {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private static Object toLocal(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -1,228 +1,307 @@
 package ru.utalieva.victorina.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.utalieva.victorina.exception.ResourceNotFoundException;
+import ru.utalieva.victorina.model.dto.AnswerResultDTO;
+import ru.utalieva.victorina.model.dto.AttemptScore;
+import ru.utalieva.victorina.model.dto.AttemptSummaryDTO;
+import ru.utalieva.victorina.model.dto.CursorPage;
+import ru.utalieva.victorina.model.dto.KeysetCursor;
 import ru.utalieva.victorina.model.dto.QuizAttemptRequest;
 import ru.utalieva.victorina.model.dto.QuizAttemptResponse;
-import ru.utalieva.victorina.model.dto.QuizResultDTO;
-import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
 import ru.utalieva.victorina.model.entity.QuizAttempt;
-import ru.utalieva.victorina.model.entity.User;
-import ru.utalieva.victorina.model.entity.Question;
-import ru.utalieva.victorina.model.entity.Option;
-import ru.utalieva.victorina.model.entity.QuizResult;
-import ru.utalieva.victorina.model.enumination.QuizType;
+import ru.utalieva.victorina.repository.QuizAttemptJdbcRepository;
 import ru.utalieva.victorina.repository.QuizAttemptRepository;
-import ru.utalieva.victorina.repository.QuizRepository;
-import ru.utalieva.victorina.repository.UserRepository;
-import ru.utalieva.victorina.exception.ResourceNotFoundException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.ToIntFunction;
 
 @Service
-@RequiredArgsConstructor
+@Timed(value = "quiz.service", histogram = true)
 public class QuizAttemptService {
     private final QuizAttemptRepository quizAttemptRepository;
-    private final QuizRepository quizRepository;
-    private final UserRepository userRepository;
+    private final QuizAttemptJdbcRepository quizAttemptJdbcRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final AttemptSessionStore attemptSessionStore;
+    private final LeaderboardService leaderboardService;
+    private final SubmissionWriteBehind submissionWriteBehind;
+    private final MeterRegistry meterRegistry;
+    private final Duration gracePeriod;
+    private final Duration maxLifetime;
     private static final Logger logger = LoggerFactory.getLogger(QuizAttemptService.class);
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    public QuizAttemptService(QuizAttemptRepository quizAttemptRepository,
+                              QuizAttemptJdbcRepository quizAttemptJdbcRepository,
+                              AnswerKeyCache answerKeyCache,
+                              AttemptSessionStore attemptSessionStore,
+                              LeaderboardService leaderboardService,
+                              SubmissionWriteBehind submissionWriteBehind,
+                              MeterRegistry meterRegistry,
+                              @Value("${quiz.session.grace-period:10s}") Duration gracePeriod,
+                              @Value("${quiz.session.max-lifetime:24h}") Duration maxLifetime) {
+        this.quizAttemptRepository = quizAttemptRepository;
+        this.quizAttemptJdbcRepository = quizAttemptJdbcRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.attemptSessionStore = attemptSessionStore;
+        this.leaderboardService = leaderboardService;
+        this.submissionWriteBehind = submissionWriteBehind;
+        this.meterRegistry = meterRegistry;
+        this.gracePeriod = gracePeriod;
+        this.maxLifetime = maxLifetime;
+    }
 
-    @Transactional
     public QuizAttemptResponse startQuiz(Long userId, Long quizId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        Quiz quiz = quizRepository.findById(quizId)
-                .orElseThrow(() -> new ResourceNotFoundException("Quiz not found"));
-
-        QuizAttempt attempt = new QuizAttempt();
-        attempt.setQuiz(quiz);
-        attempt.setUser(user);
-        attempt.setStartTime(LocalDateTime.now());
-        attempt.setScore(0);
-        attempt.setTotalQuestions(quiz.getQuestions().size());
-        attempt.setTimeSpent(0);
-        attempt.setIsCompleted(false);
-        attempt.setUserAnswers(new HashMap<>());
-
-        attempt = quizAttemptRepository.save(attempt);
-        return createAttemptResponse(attempt);
+        AnswerKey answerKey = answerKeyCache.get(quizId);
+
+        Long attemptId = quizAttemptJdbcRepository.nextId();
+        AttemptSession session = AttemptSession.start(attemptId, userId, answerKey, Instant.now(),
+                gracePeriod, maxLifetime);
+        // Повторный старт начинает попытку заново: прежняя завершается как истёкшая с уже принятыми ответами
+        attemptSessionStore.save(session).ifPresent(previous -> {
+            logger.info("Attempt {} of user {} replaced by a restart of quiz {}",
+                    previous.getAttemptId(), userId, answerKey.getQuizId());
+            try {
+                expire(previous);
+            } catch (RuntimeException e) {
+                // Новая попытка уже начата; прежняя теряется, как при перезапуске приложения
+                logger.error("Failed to save replaced attempt {}", previous.getAttemptId(), e);
+            }
+        });
+
+        QuizAttemptResponse response = new QuizAttemptResponse();
+        response.setAttemptId(attemptId);
+        response.setQuizId(answerKey.getQuizId());
+        response.setQuizTitle(answerKey.getQuizTitle());
+        response.setTotalQuestions(session.getTotalQuestions());
+        response.setTimeSpent(0);
+        response.setIsCompleted(false);
+        response.setDeadline(session.getDeadlineTime());
+        return response;
     }
 
-    @Transactional
     public QuizAttemptResponse submitQuiz(Long userId, QuizAttemptRequest request) {
-        Quiz quiz = quizRepository.findById(request.getQuizId())
-                .orElseThrow(() -> new ResourceNotFoundException("Quiz not found"));
+        AnswerKey answerKey = answerKeyCache.get(request.getQuizId());
 
-        List<QuizAttempt> attempts = quizAttemptRepository.findByUserIdAndQuizId(userId, request.getQuizId());
-        QuizAttempt attempt = attempts.stream()
-                .filter(a -> !a.getIsCompleted())
-                .findFirst()
+        // Забираем попытку из хранилища: повторная или параллельная отправка её уже не найдёт
+        AttemptSession session = attemptSessionStore.findActive(userId, answerKey.getQuizId())
+                .flatMap(active -> attemptSessionStore.remove(active.getAttemptId()))
                 .orElseThrow(() -> new ResourceNotFoundException("Active attempt not found"));
 
-        // Convert Integer keys to String for JSONB compatibility
-        Map<String, Integer> userAnswers = request.getAnswers().entrySet().stream()
-                .collect(Collectors.toMap(
-                    entry -> String.valueOf(entry.getKey()),
-                    Map.Entry::getValue
-                ));
-
-        attempt.setUserAnswers(userAnswers);
-        attempt.setTimeSpent(request.getTimeSpent());
-        attempt.setEndTime(LocalDateTime.now());
-        attempt.setIsCompleted(true);
-
-        if (QuizType.PERSONALITY.equals(quiz.getQuizType())) {
-            // Для личностной викторины вычисляем черты характера
-            Map<String, Integer> traits = calculatePersonalityTraits(quiz, request.getAnswers());
-            QuizResult personalityResult = findBestMatchingResult(quiz, traits);
-            
-            if (personalityResult != null) {
-                attempt.setPersonalityResult(personalityResult);
-                attempt.setScore(attempt.getTotalQuestions()); // Для personality quiz всегда максимальный счет
-            } else {
-                logger.warn("Could not determine personality result for quiz attempt: {}", attempt.getId());
-                // Используем первый результат как запасной вариант
-                attempt.setPersonalityResult(quiz.getResults().isEmpty() ? null : quiz.getResults().getFirst());
-            }
-        } else {
-            // Для стандартной викторины считаем очки
-            int score = calculateScore(quiz, request.getAnswers());
-            attempt.setScore(score);
+        Instant now = Instant.now();
+        boolean expired = session.isExpired(now);
+        if (expired) {
+            // Время вышло: засчитываем только ответы, принятые до дедлайна
+            logger.info("Attempt {} submitted after the deadline", session.getAttemptId());
+        } else if (request.getAnswers() != null) {
+            // Ответы, ещё не присланные по одному; уже принятые не меняются
+            request.getAnswers().forEach((questionIndex, optionIndex) -> {
+                if (questionIndex != null && optionIndex != null && answerKey.isValidAnswer(questionIndex, optionIndex)) {
+                    session.answer(questionIndex, optionIndex);
+                }
+            });
         }
 
-        attempt = quizAttemptRepository.save(attempt);
-        return createAttemptResponse(attempt);
-    }
+        ScoredSubmission submission = score(session, now, expired, answerKey);
+        try {
+            submissionWriteBehind.save(submission);
+        } catch (RuntimeException e) {
+            // Попытка не сохранена - возвращаем её, чтобы можно было отправить ещё раз
+            attemptSessionStore.save(session);
+            throw e;
+        }
 
-    private int calculateScore(Quiz quiz, Map<Integer, Integer> answers) {
-        int score = 0;
-        List<Question> questions = quiz.getQuestions();
-        
-        for (int i = 0; i < questions.size(); i++) {
-            Question question = questions.get(i);
-            List<Option> options = question.getOptions();
-            
-            Integer selectedOption = answers.get(i);
-            if (selectedOption != null && selectedOption >= 0 && selectedOption < options.size()) {
-                if (selectedOption.equals(question.getCorrectIndex())) {
-                    score++;
-                }
-            }
+        QuizAttemptResponse response = new QuizAttemptResponse();
+        response.setAttemptId(submission.attemptId());
+        response.setQuizId(answerKey.getQuizId());
+        response.setQuizTitle(answerKey.getQuizTitle());
+        response.setTotalQuestions(submission.totalQuestions());
+        response.setTimeSpent(submission.timeSpent());
+        response.setIsCompleted(true);
+        response.setExpired(expired);
+        fillResult(response, submission.attemptId(), submission.answers(), submission.score(),
+                submission.personalityResultId(), answerKey);
+
+        if (submission.ranked()) {
+            response.setPosition(leaderboardService.positionOf(answerKey.getQuizId(), new AttemptScore(
+                    submission.attemptId(), userId, submission.score(), submission.timeSpent())));
         }
-        return score;
+        return response;
     }
 
-    private Map<String, Integer> calculatePersonalityTraits(Quiz quiz, Map<Integer, Integer> answers) {
-        Map<String, Integer> traits = new HashMap<>();
-        List<Question> questions = quiz.getQuestions();
-        
-        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
-            int questionIndex = answer.getKey();
-            int selectedOptionIndex = answer.getValue();
-            
-            if (questionIndex >= 0 && questionIndex < questions.size()) {
-                Question question = questions.get(questionIndex);
-                List<Option> options = question.getOptions();
-                
-                if (selectedOptionIndex >= 0 && selectedOptionIndex < options.size()) {
-                    Option selectedOption = options.get(selectedOptionIndex);
-                    Map<String, Integer> optionTraits = selectedOption.getTraits();
-                    
-                    if (optionTraits != null) {
-                        // Store the resultIndex for this specific answer
-                        traits.put("resultIndex_" + questionIndex, optionTraits.get("resultIndex"));
-                        
-                        // Also store the most recent resultIndex as the main one
-                        traits.put("resultIndex", optionTraits.get("resultIndex"));
-                    }
-                }
-            }
+    /** Завершает попытку, у которой вышло время, с ответами, принятыми до дедлайна. */
+    public void expire(AttemptSession session) {
+        AnswerKey answerKey;
+        try {
+            answerKey = answerKeyCache.get(session.getQuizId());
+        } catch (ResourceNotFoundException e) {
+            logger.warn("Quiz {} no longer exists, expired attempt {} dropped", session.getQuizId(), session.getAttemptId());
+            return;
         }
-        
-        return traits;
+        submissionWriteBehind.save(score(session, Instant.now(), true, answerKey));
+    }
+
+    /** Попытка участника живой комнаты: темп задаёт ведущий, поэтому она не попадает в хранилище с таймером. */
+    AttemptSession startLiveAttempt(Long userId, AnswerKey answerKey) {
+        return AttemptSession.start(quizAttemptJdbcRepository.nextId(), userId, answerKey, Instant.now(),
+                gracePeriod, maxLifetime);
     }
 
-    private QuizResult findBestMatchingResult(Quiz quiz, Map<String, Integer> userTraits) {
-        // For personality quizzes, we use the resultIndex from the traits
-        Integer resultIndex = userTraits.get("resultIndex");
-        if (resultIndex != null && resultIndex >= 0 && resultIndex < quiz.getResults().size()) {
-            return quiz.getResults().get(resultIndex);
+    /**
+     * Сохраняет попытки участников живой комнаты одной пачкой. Попытка начинается со старта комнаты,
+     * а не с подписки участника; затраченное время считает комната.
+     */
+    void completeLiveAttempts(List<AttemptSession> sessions, AnswerKey answerKey, Instant startedAt,
+                              ToIntFunction<AttemptSession> timeSpent) {
+        LocalDateTime startTime = LocalDateTime.ofInstant(startedAt, ZoneId.systemDefault());
+        submissionWriteBehind.saveAll(sessions.stream()
+                .map(session -> score(session, false, answerKey, startTime, timeSpent.applyAsInt(session)))
+                .toList());
+    }
+
+    public AnswerResultDTO answerQuestion(Long userId, Long attemptId, int questionIndex, Integer optionIndex) {
+        // Чужая попытка для пользователя не существует
+        AttemptSession session = attemptSessionStore.find(attemptId)
+                .filter(active -> active.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Active attempt not found"));
+        if (session.isExpired(Instant.now())) {
+            throw new RuntimeException("Время на прохождение викторины истекло");
         }
-        
-        // Fallback: find the most common resultIndex in user's answers
-        Map<Integer, Integer> resultCounts = new HashMap<>();
-        userTraits.forEach((trait, value) -> {
-            if (trait.startsWith("resultIndex_")) {
-                resultCounts.merge(value, 1, Integer::sum);
+
+        AnswerKey answerKey = answerKeyCache.get(session.getQuizId());
+        if (optionIndex == null || !answerKey.isValidAnswer(questionIndex, optionIndex)) {
+            throw new IllegalArgumentException("Некорректный ответ на вопрос " + questionIndex);
+        }
+        if (!session.answer(questionIndex, optionIndex)) {
+            throw new RuntimeException("На вопрос " + questionIndex + " уже дан ответ");
+        }
+
+        AnswerResultDTO result = new AnswerResultDTO();
+        result.setQuestionIndex(questionIndex);
+        result.setAnsweredCount(session.getAnsweredCount());
+        result.setTotalQuestions(session.getTotalQuestions());
+        if (!answerKey.isPersonality()) {
+            result.setCorrect(answerKey.isCorrect(questionIndex, optionIndex));
+            result.setScore(session.getScore());
+        }
+        return result;
+    }
+
+    private ScoredSubmission score(AttemptSession session, Instant now, boolean expired, AnswerKey answerKey) {
+        return score(session, expired, answerKey, session.getStartTime(), session.elapsedSeconds(now));
+    }
+
+    private ScoredSubmission score(AttemptSession session, boolean expired, AnswerKey answerKey,
+                                   LocalDateTime startTime, int timeSpent) {
+        // Счёт уже накоплен в сессии по мере приёма ответов
+        Map<Integer, Integer> answers = session.getAnswers();
+
+        int score = 0;
+        Long personalityResultId = null;
+        if (answerKey.isPersonality()) {
+            // Для личностной викторины подбираем результат по ответам
+            int resultIndex = session.getPersonalityResult();
+            if (resultIndex >= 0) {
+                personalityResultId = answerKey.getResultId(resultIndex);
+                score = answerKey.getQuestionCount(); // Для personality quiz всегда максимальный счет
+            } else {
+                logger.warn("Could not determine personality result for quiz attempt: {}", session.getAttemptId());
             }
-        });
-        
-        if (!resultCounts.isEmpty()) {
-            // Find the most frequent resultIndex
-            return resultCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(entry -> {
-                    int index = entry.getKey();
-                    return index >= 0 && index < quiz.getResults().size() ? 
-                        quiz.getResults().get(index) : null;
-                })
-                .orElse(null);
+        } else {
+            // Для стандартной викторины считаем очки
+            score = session.getScore();
         }
-        
-        // If no result can be determined, return the first result as default
-        return quiz.getResults().isEmpty() ? null : quiz.getResults().getFirst();
+
+        meterRegistry.counter("quiz.submissions",
+                "type", answerKey.getQuizType().name(), "expired", String.valueOf(expired)).increment();
+
+        // Время считает сервер; у истёкшей попытки конец - дедлайн
+        LocalDateTime endTime = expired && session.getDeadlineTime() != null
+                ? session.getDeadlineTime() : LocalDateTime.now();
+        return new ScoredSubmission(session.getAttemptId(), session.getUserId(), session.getQuizId(), score,
+                session.getTotalQuestions(), timeSpent, startTime, endTime,
+                answers, personalityResultId, expired, !answerKey.isPersonality());
     }
 
     private QuizAttemptResponse createAttemptResponse(QuizAttempt attempt) {
+        return createAttemptResponse(attempt, answerKeyCache.get(attempt.getQuiz().getId()));
+    }
+
+    private QuizAttemptResponse createAttemptResponse(QuizAttempt attempt, AnswerKey answerKey) {
         QuizAttemptResponse response = new QuizAttemptResponse();
         response.setAttemptId(attempt.getId());
-        response.setQuizId(attempt.getQuiz().getId());
-        response.setQuizTitle(attempt.getQuiz().getTitle());
+        response.setQuizId(answerKey.getQuizId());
+        response.setQuizTitle(answerKey.getQuizTitle());
         response.setTotalQuestions(attempt.getTotalQuestions());
         response.setTimeSpent(attempt.getTimeSpent());
         response.setIsCompleted(attempt.getIsCompleted());
         
         if (attempt.getIsCompleted() && attempt.getUserAnswers() != null) {
-            if (QuizType.PERSONALITY.equals(attempt.getQuiz().getQuizType())) {
-                // Для викторины типа "Кто ты"
-                if (attempt.getPersonalityResult() != null) {
-                    response.setPersonalityResult(QuizResultDTO.fromEntity(attempt.getPersonalityResult()));
-                    response.setScore(attempt.getTotalQuestions()); // Для personality quiz всегда показываем максимальный счет
-                } else {
-                    logger.warn("No personality result found for completed personality quiz attempt: {}", attempt.getId());
-                    // Используем первый результат как запасной вариант
-                    if (!attempt.getQuiz().getResults().isEmpty()) {
-                        response.setPersonalityResult(QuizResultDTO.fromEntity(attempt.getQuiz().getResults().getFirst()));
-                        response.setScore(attempt.getTotalQuestions());
-                    }
-                }
-            } else {
-                // Для стандартной викторины
-                response.setScore(attempt.getScore());
-                // Конвертируем ответы из Map<String, Integer> в Map<Integer, Boolean>
-                Map<Integer, Boolean> answers = new HashMap<>();
-                attempt.getUserAnswers().forEach((key, value) -> {
-                    int questionIndex = Integer.parseInt(key);
-                    Question question = attempt.getQuiz().getQuestions().get(questionIndex);
-                    answers.put(questionIndex, value.equals(question.getCorrectIndex()));
-                });
-                response.setAnswers(answers);
-            }
+            Long resultId = attempt.getPersonalityResult() != null ? attempt.getPersonalityResult().getId() : null;
+            fillResult(response, attempt.getId(), attempt.getUserAnswers(), attempt.getScore(), resultId, answerKey);
         }
         
         return response;
     }
 
-    public List<QuizAttemptResponse> getUserAttempts(Long userId) {
-        return quizAttemptRepository.findCompletedAttemptsByUserId(userId).stream()
-                .map(this::createAttemptResponse)
-                .toList();
+    private void fillResult(QuizAttemptResponse response, Long attemptId, Map<Integer, Integer> userAnswers,
+                            int score, Long personalityResultId, AnswerKey answerKey) {
+        if (answerKey.isPersonality()) {
+            // Для викторины типа "Кто ты"
+            int resultIndex = answerKey.indexOfResult(personalityResultId);
+            if (resultIndex < 0) {
+                logger.warn("No personality result found for completed personality quiz attempt: {}", attemptId);
+                // Используем первый результат как запасной вариант
+                resultIndex = answerKey.getResultCount() > 0 ? 0 : -1;
+            }
+            if (resultIndex >= 0) {
+                response.setPersonalityResult(answerKey.getResult(resultIndex));
+                response.setScore(response.getTotalQuestions()); // Для personality quiz всегда показываем максимальный счет
+            }
+        } else {
+            // Для стандартной викторины
+            response.setScore(score);
+            Map<Integer, Boolean> answers = new HashMap<>();
+            userAnswers.forEach((questionIndex, optionIndex) ->
+                    answers.put(questionIndex, optionIndex != null && answerKey.isCorrect(questionIndex, optionIndex)));
+            response.setAnswers(answers);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<AttemptSummaryDTO> getUserAttempts(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        if (after == null) {
+            after = KeysetCursor.FIRST_PAGE;
+        }
+
+        List<AttemptSummaryDTO> rows = quizAttemptRepository.findHistoryPage(
+                userId, after.timestamp(), after.id(), PageRequest.ofSize(CursorPage.fetchSize(pageSize)));
+        return CursorPage.of(rows, pageSize, last -> new KeysetCursor(last.getEndTime(), last.getAttemptId()));
+    }
+
+    @Transactional(readOnly = true)
+    public QuizAttemptResponse getAttempt(Long userId, Long attemptId) {
+        // Чужая попытка для пользователя не существует
+        QuizAttempt attempt = quizAttemptRepository.findById(attemptId)
+                .filter(a -> a.getUser().getId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Attempt not found"));
+        return createAttemptResponse(attempt);
     }
 } 
\ No newline at end of file
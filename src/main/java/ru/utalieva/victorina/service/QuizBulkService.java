@@ -0,0 +1,200 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.utalieva.victorina.model.dto.QuizCreateDTO;
+import ru.utalieva.victorina.model.dto.QuizImportReportDTO;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.repository.QuizBulkRepository;
+import ru.utalieva.victorina.repository.UserRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Массовый импорт и выгрузка викторин в NDJSON: одна викторина в формате POST /api/quizzes на строку.
+ * Импорт читает поток построчно и сохраняет викторины пачками по quiz.bulk.batch-size, каждая пачка
+ * в своей транзакции; строки с ошибками пропускаются и попадают в отчёт. Выгрузка читает пачки по id,
+ * каждую в своей короткой транзакции: соединение не держится, пока клиент принимает данные.
+ * Память в обоих случаях ограничена размером пачки.
+ */
+@Service
+public class QuizBulkService {
+    private static final Logger logger = LoggerFactory.getLogger(QuizBulkService.class);
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final QuizService quizService;
+    private final QuizBulkRepository quizBulkRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate exportTransactionTemplate;
+    private final int batchSize;
+    private final int exportChunkSize;
+    private final Duration exportTimeout;
+
+    public QuizBulkService(QuizService quizService,
+                           QuizBulkRepository quizBulkRepository,
+                           UserRepository userRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${quiz.bulk.batch-size:200}") int batchSize,
+                           @Value("${quiz.bulk.export-chunk-size:500}") int exportChunkSize,
+                           @Value("${quiz.bulk.export-timeout:5m}") Duration exportTimeout) {
+        this.quizService = quizService;
+        this.quizBulkRepository = quizBulkRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Снимок на пачку: вложенные строки читаются отдельными запросами
+        this.exportTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportTransactionTemplate.setReadOnly(true);
+        this.exportTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.batchSize = batchSize;
+        this.exportChunkSize = exportChunkSize;
+        this.exportTimeout = exportTimeout;
+    }
+
+    /** Импортирует викторины от имени пользователя; автором всех викторин становится он. */
+    public QuizImportReportDTO importQuizzes(InputStream input, String username) throws IOException {
+        User author = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+
+        long started = System.nanoTime();
+        QuizImportReportDTO report = new QuizImportReportDTO();
+        List<Quiz> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.setLines(report.getLines() + 1);
+            try {
+                QuizCreateDTO quizDTO = objectMapper.readValue(line, QuizCreateDTO.class);
+                batch.add(quizService.buildQuiz(quizDTO, author));
+                batchLines.add(lineNumber);
+            } catch (JsonProcessingException e) {
+                failed(report, lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+                continue;
+            } catch (RuntimeException e) {
+                failed(report, lineNumber, e.getMessage());
+                continue;
+            }
+            if (batch.size() == batchSize) {
+                flush(batch, batchLines, report);
+            }
+        }
+        flush(batch, batchLines, report);
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        report.setElapsedMs(elapsedMs);
+        report.setQuizzesPerSecond(report.getImported() * 1000 / Math.max(1, elapsedMs));
+        logger.info("Imported {} quizzes for {}, {} lines failed, in {} ms ({} quizzes/s)",
+                report.getImported(), username, report.getFailed(), elapsedMs, report.getQuizzesPerSecond());
+        return report;
+    }
+
+    /**
+     * Пишет в поток викторины, доступные пользователю, по строке на викторину, и сбрасывает его после
+     * каждой пачки. Викторины, созданные или удалённые во время выгрузки, могут попасть в неё или нет,
+     * но каждая пачка - согласованный снимок. Выгрузка дольше quiz.bulk.export-timeout обрывается.
+     *
+     * @return число выгруженных викторин
+     */
+    public long exportQuizzes(OutputStream output, Long userId) {
+        long started = System.nanoTime();
+        long deadline = started + exportTimeout.toNanos();
+        long exported = 0;
+        long afterId = 0;
+        QuizBulkRepository.ExportChunk chunk;
+        do {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Выгрузка не уложилась в " + exportTimeout
+                        + " и прервана после " + exported + " викторин");
+            }
+            long from = afterId;
+            chunk = exportTransactionTemplate.execute(status ->
+                    quizBulkRepository.findChunk(from, userId, exportChunkSize));
+            try {
+                for (QuizCreateDTO quiz : chunk.quizzes()) {
+                    output.write(objectMapper.writeValueAsBytes(quiz));
+                    output.write('\n');
+                }
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Выгрузка прервана после " + exported + " викторин", e);
+            }
+            exported += chunk.quizzes().size();
+            afterId = chunk.lastId();
+        } while (chunk.quizzes().size() == exportChunkSize);
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Exported {} quizzes for user {} in {} ms ({} quizzes/s)",
+                exported, userId, elapsedMs, exported * 1000 / Math.max(1, elapsedMs));
+        return exported;
+    }
+
+    private void flush(List<Quiz> batch, List<Long> batchLines, QuizImportReportDTO report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            insert(batch);
+            report.setImported(report.getImported() + batch.size());
+        } catch (DataAccessException e) {
+            // Пачка не проходит: сохраняем по одной, чтобы указать строку с ошибкой
+            logger.warn("Failed to import batch of {} quizzes, retrying one by one", batch.size(), e);
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    insert(List.of(batch.get(i)));
+                    report.setImported(report.getImported() + 1);
+                } catch (DataAccessException quizError) {
+                    failed(report, batchLines.get(i), quizError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private void insert(List<Quiz> quizzes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            quizBulkRepository.insert(quizzes);
+            // Индекс поиска добавит викторины после коммита
+            eventPublisher.publishEvent(new QuizzesImportedEvent(quizzes.stream().map(Quiz::getId).toList()));
+        });
+    }
+
+    private static void failed(QuizImportReportDTO report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new QuizImportReportDTO.LineError(line, message));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.utalieva.victorina.service;
+
+/**
+ * Публикуется QuizService при создании и удалении викторины.
+ * Кэши подписываются на него с фазой AFTER_COMMIT.
+ */
+public record QuizChangedEvent(Long quizId) {
+}
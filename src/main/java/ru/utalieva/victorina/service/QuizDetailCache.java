@@ -0,0 +1,72 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through кэш готового JSON для GET /api/quizzes/{id}.
+ * Каждая загрузка получает новый номер версии, он же используется как ETag.
+ * Запись сбрасывается после коммита создания или удаления викторины.
+ */
+@Component
+public class QuizDetailCache {
+    private final QuizService quizService;
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<Long, CachedQuiz> cache;
+    // Начинаем со времени старта, чтобы версии не повторялись после перезапуска
+    private final AtomicLong versionSequence = new AtomicLong(System.currentTimeMillis());
+
+    public QuizDetailCache(QuizService quizService,
+                           ObjectMapper objectMapper,
+                           @Value("${quiz.detail-cache.max-size:1000}") long maxSize,
+                           @Value("${quiz.detail-cache.ttl:10m}") Duration ttl) {
+        this.quizService = quizService;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public CachedQuiz get(Long quizId) {
+        return CacheLoads.get(cache, quizId, this::load);
+    }
+
+    public void invalidate(Long quizId) {
+        cache.synchronous().invalidate(quizId);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    @TransactionalEventListener
+    public void onQuizChanged(QuizChangedEvent event) {
+        invalidate(event.quizId());
+    }
+
+    private CachedQuiz load(Long quizId) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(quizService.getQuizDetail(quizId));
+            return new CachedQuiz(versionSequence.incrementAndGet(), json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать викторину " + quizId, e);
+        }
+    }
+
+    public record CachedQuiz(long version, byte[] json) {
+        public String etag() {
+            return "\"" + version + "\"";
+        }
+    }
+}
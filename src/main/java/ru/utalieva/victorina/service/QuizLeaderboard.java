@@ -0,0 +1,56 @@
+package ru.utalieva.victorina.service;
+
+import ru.utalieva.victorina.model.dto.AttemptScore;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Рейтинг одной викторины: лучшая попытка каждого пользователя,
+ * по убыванию счёта, затем по возрастанию времени.
+ */
+final class QuizLeaderboard {
+    static final Comparator<AttemptScore> ORDER = Comparator
+            .comparing(AttemptScore::score, Comparator.reverseOrder())
+            .thenComparing(AttemptScore::timeSpent)
+            .thenComparing(AttemptScore::attemptId);
+
+    private final RankedSkipList<AttemptScore> ranking = new RankedSkipList<>(ORDER);
+    private final Map<Long, AttemptScore> bestByUser = new HashMap<>();
+
+    /** Учитывает попытку, если она лучше предыдущей лучшей попытки пользователя. */
+    synchronized void offer(AttemptScore attempt) {
+        AttemptScore best = bestByUser.get(attempt.userId());
+        if (best != null && ORDER.compare(attempt, best) >= 0) {
+            return;
+        }
+        if (best != null) {
+            ranking.remove(best);
+        }
+        ranking.insert(attempt);
+        bestByUser.put(attempt.userId(), attempt);
+    }
+
+    /**
+     * Место, которое занимает (или занял бы) результат попытки, начиная с 1.
+     * Прежняя лучшая попытка того же пользователя не считается: в рейтинге у него одна строка.
+     */
+    synchronized int positionOf(AttemptScore attempt) {
+        int ahead = ranking.countLessThan(attempt);
+        AttemptScore best = bestByUser.get(attempt.userId());
+        if (best != null && ORDER.compare(best, attempt) < 0) {
+            ahead--;
+        }
+        return ahead + 1;
+    }
+
+    synchronized List<AttemptScore> top(int limit) {
+        return ranking.first(limit);
+    }
+
+    synchronized int size() {
+        return ranking.size();
+    }
+}
@@ -0,0 +1,574 @@
+package ru.utalieva.victorina.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.utalieva.victorina.repository.QuizSearchRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс викторин в памяти: для каждой лексемы - упорядоченный список документов
+ * с весом вхождения. Поиск пересекает списки, фильтрует и считает фасеты за один проход по кандидатам,
+ * не обращаясь к базе. Для каждого значения фасета хранится битовая карта документов, поэтому
+ * запрос без текста проходит только по документам, подходящим под фильтры, а без фильтров
+ * берёт готовые счётчики. Индекс строится из quizzes.search_vector при старте, до того как
+ * веб-сервер начнёт принимать запросы, и обновляется после коммита создания или удаления викторины.
+ * Значения фасетов null (викторина без категории) в фасеты не попадают.
+ */
+@Component
+public class QuizSearchIndex implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(QuizSearchIndex.class);
+
+    // Веса по умолчанию ts_rank: A (название) 1.0, B (описание) 0.4
+    private static final float TITLE_WEIGHT = 1.0f;
+    private static final float DESCRIPTION_WEIGHT = 0.4f;
+    private static final float OTHER_WEIGHT = 0.1f;
+
+    // Удалённые документы вычищаются из списков, когда их становится больше четверти
+    private static final int COMPACT_MIN_DELETED = 64;
+    private static final int COMPACT_DELETED_RATIO = 4;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score)
+            .thenComparingLong(Hit::createdAt)
+            .thenComparingLong(Hit::quizId);
+
+    private final QuizSearchRepository quizSearchRepository;
+    private final Cache<String, List<String>> analyzedQueries;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Номер документа - позиция в docs; удалённый документ снимается из live и карт фасетов
+    // и остаётся в списках лексем до ближайшего сжатия
+    private final List<Doc> docs = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> docByQuiz = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Facet categories = new Facet();
+    private final Facet difficulties = new Facet();
+    private final Facet tags = new Facet();
+    private int deleted;
+    // Викторины, изменённые до окончания загрузки: перечитываются сразу после неё
+    private final Set<Long> pending = new LinkedHashSet<>();
+    private volatile boolean loaded;
+
+    public QuizSearchIndex(QuizSearchRepository quizSearchRepository,
+                           @Value("${quiz.search.query-cache-size:10000}") long queryCacheSize) {
+        this.quizSearchRepository = quizSearchRepository;
+        this.analyzedQueries = Caffeine.newBuilder().maximumSize(queryCacheSize).build();
+    }
+
+    public record Hit(Long quizId, float score, long createdAt) {
+    }
+
+    /**
+     * @param hits    лучшие документы по убыванию релевантности, не больше limit
+     * @param total   число подходящих документов
+     * @param facets  фасет (category, difficulty, tag) -> значение -> число подходящих документов
+     */
+    public record Result(List<Hit> hits, long total, Map<String, Map<String, Long>> facets) {
+    }
+
+    /**
+     * Загружает индекс после создания всех бинов: веб-сервер запускается позже, поэтому запросы поиска
+     * не ждут загрузку под блокировкой записи. Если база недоступна, загрузку повторит первый поиск.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            ensureLoaded();
+        } catch (RuntimeException e) {
+            logger.error("Failed to load search index on startup, the first search will retry", e);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onQuizChanged(QuizChangedEvent event) {
+        refresh(List.of(event.quizId()));
+    }
+
+    @TransactionalEventListener
+    public void onQuizzesImported(QuizzesImportedEvent event) {
+        refresh(event.quizIds());
+    }
+
+    /**
+     * Все лексемы запроса должны встретиться в названии или описании; без текста подходят все викторины.
+     *
+     * @param limit сколько лучших документов вернуть
+     */
+    public Result search(String text, String category, String difficulty, String tag, int limit) {
+        boolean anyText = text != null && !text.isBlank();
+        List<String> terms = anyText ? analyze(text) : List.of();
+        ensureLoaded();
+
+        TopHits top = new TopHits(limit);
+        lock.readLock().lock();
+        try {
+            BitSet filtered = filter(category, difficulty, tag);
+            if (!anyText && filtered == null) {
+                // Ни текста, ни фильтров: подходят все живые документы, фасеты уже посчитаны.
+                // Обход с конца: новые документы обычно моложе, и старые сразу отсекаются топом
+                for (int docId = live.previousSetBit(docs.size() - 1); docId >= 0;
+                     docId = live.previousSetBit(docId - 1)) {
+                    top.offer(docs.get(docId), 0f);
+                }
+                return new Result(top.hits(), live.cardinality(),
+                        facets(categories.liveCounts(), difficulties.liveCounts(), tags.liveCounts()));
+            }
+
+            int[] categoryCounts = new int[categories.size()];
+            int[] difficultyCounts = new int[difficulties.size()];
+            int[] tagCounts = new int[tags.size()];
+            long total = 0;
+            if (!anyText) {
+                for (int docId = filtered.previousSetBit(docs.size() - 1); docId >= 0;
+                     docId = filtered.previousSetBit(docId - 1)) {
+                    Doc doc = docs.get(docId);
+                    count(doc, categoryCounts, difficultyCounts, tagCounts);
+                    top.offer(doc, 0f);
+                    total++;
+                }
+            } else {
+                Candidates candidates = candidates(terms);
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    int docId = candidates.docIds()[i];
+                    if (!live.get(docId) || (filtered != null && !filtered.get(docId))) {
+                        continue;
+                    }
+                    Doc doc = docs.get(docId);
+                    count(doc, categoryCounts, difficultyCounts, tagCounts);
+                    top.offer(doc, candidates.scores()[i]);
+                    total++;
+                }
+            }
+            return new Result(top.hits(), total, facets(categoryCounts, difficultyCounts, tagCounts));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> analyze(String text) {
+        return analyzedQueries.get(text.strip(), query -> quizSearchRepository.analyze(query).stream()
+                .map(QuizSearchIndex::normalize)
+                .distinct()
+                .toList());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        boolean loadedNow = false;
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                long started = System.nanoTime();
+                quizSearchRepository.forEachDocument(this::add);
+                loaded = true;
+                loadedNow = true;
+                logger.info("Loaded search index with {} quizzes and {} terms in {} ms",
+                        docs.size(), postings.size(), (System.nanoTime() - started) / 1_000_000);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (loadedNow) {
+            replayPending();
+        }
+    }
+
+    /**
+     * Перечитывает документы викторин: созданные появятся, удалённые исчезнут, изменённые заменятся.
+     * До окончания загрузки номера откладываются: загрузка могла прочитать таблицу до коммита изменения.
+     */
+    private void refresh(Collection<Long> quizIds) {
+        if (!loaded) {
+            synchronized (pending) {
+                pending.addAll(quizIds);
+            }
+            // Загрузка могла закончиться между проверкой и постановкой в очередь
+            if (loaded) {
+                replayPending();
+            }
+            return;
+        }
+        reload(quizIds);
+    }
+
+    private void replayPending() {
+        List<Long> quizIds;
+        synchronized (pending) {
+            quizIds = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (!quizIds.isEmpty()) {
+            logger.info("Replaying {} quiz changes received while the search index was loading", quizIds.size());
+            reload(quizIds);
+        }
+    }
+
+    private void reload(Collection<Long> quizIds) {
+        List<QuizSearchRepository.Document> documents = quizSearchRepository.findDocuments(quizIds);
+        lock.writeLock().lock();
+        try {
+            quizIds.forEach(this::remove);
+            documents.forEach(this::add);
+            if (deleted >= COMPACT_MIN_DELETED && deleted * COMPACT_DELETED_RATIO >= docs.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Под блокировкой записи. Новый документ получает самый большой номер, поэтому списки остаются упорядоченными. */
+    private void add(QuizSearchRepository.Document document) {
+        remove(document.quizId());
+        int docId = docs.size();
+        Doc doc = new Doc(document.quizId(), document.createdAt(),
+                categories.idOf(document.category()),
+                difficulties.idOf(document.difficulty()),
+                document.tags().stream().filter(Objects::nonNull).distinct().mapToInt(tags::idOf).toArray());
+        docs.add(doc);
+        index(doc, docId);
+
+        // Лексемы, различающиеся только регистром, складываются
+        Map<String, Float> weights = new HashMap<>();
+        for (int i = 0; i < document.lexemes().size(); i++) {
+            weights.merge(normalize(document.lexemes().get(i)), weightOf(document.weights().get(i)), Float::sum);
+        }
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new Postings()).add(docId, weight));
+    }
+
+    private void index(Doc doc, int docId) {
+        live.set(docId);
+        docByQuiz.put(doc.quizId(), docId);
+        categories.add(doc.category(), docId);
+        difficulties.add(doc.difficulty(), docId);
+        for (int tag : doc.tags()) {
+            tags.add(tag, docId);
+        }
+    }
+
+    private void remove(Long quizId) {
+        Integer docId = docByQuiz.remove(quizId);
+        if (docId == null) {
+            return;
+        }
+        Doc doc = docs.get(docId);
+        live.clear(docId);
+        categories.remove(doc.category(), docId);
+        difficulties.remove(doc.difficulty(), docId);
+        for (int tag : doc.tags()) {
+            tags.remove(tag, docId);
+        }
+        deleted++;
+    }
+
+    /** Перенумеровывает живые документы подряд и убирает удалённые из списков лексем; порядок номеров сохраняется. */
+    private void compact() {
+        int[] renumbered = new int[docs.size()];
+        List<Doc> kept = new ArrayList<>(docs.size() - deleted);
+        for (int docId = 0; docId < docs.size(); docId++) {
+            renumbered[docId] = live.get(docId) ? kept.size() : -1;
+            if (live.get(docId)) {
+                kept.add(docs.get(docId));
+            }
+        }
+        postings.values().removeIf(list -> list.renumber(renumbered) == 0);
+
+        docs.clear();
+        live.clear();
+        docByQuiz.clear();
+        categories.clear();
+        difficulties.clear();
+        tags.clear();
+        for (Doc doc : kept) {
+            int docId = docs.size();
+            docs.add(doc);
+            index(doc, docId);
+        }
+        logger.info("Compacted search index: dropped {} deleted quizzes, {} left", deleted, docs.size());
+        deleted = 0;
+    }
+
+    /** Живые документы, подходящие под все заданные фильтры; null, если фильтров нет. */
+    private BitSet filter(String category, String difficulty, String tag) {
+        BitSet filtered = restrict(null, categories, category);
+        filtered = restrict(filtered, difficulties, difficulty);
+        return restrict(filtered, tags, tag);
+    }
+
+    private static BitSet restrict(BitSet filtered, Facet facet, String value) {
+        if (value == null) {
+            return filtered;
+        }
+        BitSet valueDocs = facet.docsOf(value);
+        if (filtered == null) {
+            return (BitSet) valueDocs.clone();
+        }
+        filtered.and(valueDocs);
+        return filtered;
+    }
+
+    private static void count(Doc doc, int[] categoryCounts, int[] difficultyCounts, int[] tagCounts) {
+        if (doc.category() != Facet.NO_VALUE) {
+            categoryCounts[doc.category()]++;
+        }
+        if (doc.difficulty() != Facet.NO_VALUE) {
+            difficultyCounts[doc.difficulty()]++;
+        }
+        for (int tag : doc.tags()) {
+            tagCounts[tag]++;
+        }
+    }
+
+    private Map<String, Map<String, Long>> facets(int[] categoryCounts, int[] difficultyCounts, int[] tagCounts) {
+        Map<String, Map<String, Long>> facets = new HashMap<>();
+        facets.put("category", categories.toMap(categoryCounts));
+        facets.put("difficulty", difficulties.toMap(difficultyCounts));
+        facets.put("tag", tags.toMap(tagCounts));
+        return facets;
+    }
+
+    private Candidates candidates(List<String> terms) {
+        if (terms.isEmpty()) {
+            // Текст без значимых слов (только стоп-слова) ничего не находит
+            return Candidates.none();
+        }
+        List<Postings> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return Candidates.none();
+            }
+            lists.add(list);
+        }
+        // Идём по самому короткому списку и ищем его документы в остальных
+        lists.sort(Comparator.comparingInt(Postings::size));
+        Postings shortest = lists.get(0);
+        int[] docIds = new int[shortest.size];
+        float[] scores = new float[shortest.size];
+        int count = 0;
+        outer:
+        for (int i = 0; i < shortest.size; i++) {
+            int docId = shortest.docs[i];
+            float score = shortest.weights[i];
+            for (int l = 1; l < lists.size(); l++) {
+                Postings other = lists.get(l);
+                int position = Arrays.binarySearch(other.docs, 0, other.size, docId);
+                if (position < 0) {
+                    continue outer;
+                }
+                score += other.weights[position];
+            }
+            docIds[count] = docId;
+            scores[count] = score;
+            count++;
+        }
+        return new Candidates(docIds, scores, count);
+    }
+
+    private static String normalize(String lexeme) {
+        // Регистр приводим здесь: lower() в базе с локалью C не работает для кириллицы
+        return lexeme.toLowerCase(Locale.ROOT);
+    }
+
+    private static float weightOf(String labels) {
+        float weight = 0;
+        for (int i = 0; i < labels.length(); i++) {
+            weight += switch (labels.charAt(i)) {
+                case 'A' -> TITLE_WEIGHT;
+                case 'B' -> DESCRIPTION_WEIGHT;
+                default -> OTHER_WEIGHT;
+            };
+        }
+        return weight;
+    }
+
+    /** Значения фасета хранятся номерами ({@link Facet#NO_VALUE} для null), теги - номерами без повторов. */
+    private record Doc(Long quizId, long createdAt, int category, int difficulty, int[] tags) {
+    }
+
+    /**
+     * Значения одного фасета: номер значения, битовая карта живых документов с ним
+     * и их число. Значения не удаляются, у исчезнувшего просто нулевой счётчик.
+     */
+    private static final class Facet {
+        static final int NO_VALUE = -1;
+        private static final BitSet NONE = new BitSet();
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<BitSet> docs = new ArrayList<>();
+        private int[] counts = new int[16];
+
+        int idOf(String value) {
+            if (value == null) {
+                return NO_VALUE;
+            }
+            return ids.computeIfAbsent(value, v -> {
+                int id = values.size();
+                values.add(v);
+                docs.add(new BitSet());
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id * 2);
+                }
+                return id;
+            });
+        }
+
+        BitSet docsOf(String value) {
+            Integer id = ids.get(value);
+            return id != null ? docs.get(id) : NONE;
+        }
+
+        void add(int id, int docId) {
+            if (id == NO_VALUE) {
+                return;
+            }
+            docs.get(id).set(docId);
+            counts[id]++;
+        }
+
+        void remove(int id, int docId) {
+            if (id == NO_VALUE) {
+                return;
+            }
+            docs.get(id).clear(docId);
+            counts[id]--;
+        }
+
+        void clear() {
+            docs.forEach(BitSet::clear);
+            Arrays.fill(counts, 0);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        int[] liveCounts() {
+            return counts;
+        }
+
+        Map<String, Long> toMap(int[] valueCounts) {
+            Map<String, Long> map = new HashMap<>();
+            for (int id = 0; id < values.size(); id++) {
+                if (valueCounts[id] > 0) {
+                    map.put(values.get(id), (long) valueCounts[id]);
+                }
+            }
+            return map;
+        }
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int docId, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = docId;
+            weights[size] = weight;
+            size++;
+        }
+
+        /** Заменяет номера документов новыми, удалённые (-1) выбрасывает; возвращает новый размер. */
+        int renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int docId = renumbered[docs[i]];
+                if (docId >= 0) {
+                    docs[kept] = docId;
+                    weights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return size;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /** Кандидаты поиска по тексту: номера документов и их релевантность. */
+    private record Candidates(int[] docIds, float[] scores, int size) {
+        static Candidates none() {
+            return new Candidates(new int[0], new float[0], 0);
+        }
+    }
+
+    /** Лучшие limit документов; объект попадания создаётся, только если документ проходит в топ. */
+    private static final class TopHits {
+        private final int limit;
+        private final PriorityQueue<Hit> heap;
+
+        TopHits(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, RANKING);
+        }
+
+        void offer(Doc doc, float score) {
+            if (heap.size() >= limit) {
+                Hit worst = heap.peek();
+                if (worst == null || !ranksAbove(score, doc, worst)) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.offer(new Hit(doc.quizId(), score, doc.createdAt()));
+        }
+
+        List<Hit> hits() {
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(RANKING.reversed());
+            return hits;
+        }
+
+        // То же сравнение, что RANKING, без создания Hit
+        private static boolean ranksAbove(float score, Doc doc, Hit hit) {
+            int byScore = Float.compare(score, hit.score());
+            if (byScore != 0) {
+                return byScore > 0;
+            }
+            if (doc.createdAt() != hit.createdAt()) {
+                return doc.createdAt() > hit.createdAt();
+            }
+            return doc.quizId() > hit.quizId();
+        }
+    }
+}
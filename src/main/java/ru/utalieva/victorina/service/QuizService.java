@@ -1,13 +1,22 @@
 package ru.utalieva.victorina.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.utalieva.victorina.model.converter.AnswerCodec;
+import ru.utalieva.victorina.model.dto.CursorPage;
+import ru.utalieva.victorina.model.dto.KeysetCursor;
+import ru.utalieva.victorina.model.dto.OptionDTO;
 import ru.utalieva.victorina.model.dto.QuizCreateDTO;
 import ru.utalieva.victorina.model.dto.QuizDTO;
 import ru.utalieva.victorina.model.dto.QuestionDTO;
+import ru.utalieva.victorina.model.dto.QuizSearchResultDTO;
+import ru.utalieva.victorina.model.dto.QuizSummaryDTO;
 import ru.utalieva.victorina.model.entity.Quiz;
 import ru.utalieva.victorina.model.entity.Question;
 import ru.utalieva.victorina.model.entity.Option;
@@ -15,27 +24,48 @@ import ru.utalieva.victorina.model.entity.QuizResult;
 import ru.utalieva.victorina.model.entity.User;
 import ru.utalieva.victorina.model.enumination.QuizType;
 import ru.utalieva.victorina.repository.QuizRepository;
-import ru.utalieva.victorina.repository.QuizResultRepository;
 import ru.utalieva.victorina.repository.UserRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "quiz.service", histogram = true)
 public class QuizService {
     private static final Logger logger = LoggerFactory.getLogger(QuizService.class);
+    private static final int MAX_CATALOG_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_OFFSET = 1000;
+    private static final int MAX_FACET_VALUES = 20;
     private final QuizRepository quizRepository;
-    private final QuizResultRepository quizResultRepository;
+    private final QuizSearchIndex quizSearchIndex;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Quiz createQuiz(QuizCreateDTO quizDTO, String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
+        Quiz savedQuiz = quizRepository.save(buildQuiz(quizDTO, user));
+
+        eventPublisher.publishEvent(new QuizChangedEvent(savedQuiz.getId()));
+
+        return savedQuiz;
+    }
+
+    /**
+     * Собирает викторину с вопросами и результатами из DTO, ничего не сохраняя.
+     * Используется и при создании одной викторины, и при массовом импорте.
+     */
+    public Quiz buildQuiz(QuizCreateDTO quizDTO, User author) {
+        validate(quizDTO);
+
         Quiz quiz = new Quiz();
         quiz.setTitle(quizDTO.getTitle());
         quiz.setDescription(quizDTO.getDescription());
@@ -44,7 +74,8 @@ public class QuizService {
         quiz.setQuizType(quizDTO.getQuizType() != null ? quizDTO.getQuizType() : QuizType.STANDARD);
         quiz.setTimeDuration(quizDTO.getTimeDuration());
         quiz.setPublic(quizDTO.isPublic());
-        quiz.setAuthor(user);
+        quiz.setTags(quizDTO.getTags() != null ? new ArrayList<>(quizDTO.getTags()) : new ArrayList<>());
+        quiz.setAuthor(author);
         
         // Конвертируем QuestionDTO в Question
         List<Question> questions = quizDTO.getQuestions().stream()
@@ -52,16 +83,42 @@ public class QuizService {
                 .collect(Collectors.toList());
         quiz.setQuestions(questions);
 
-        Quiz savedQuiz = quizRepository.save(quiz);
-
         // Создаем результаты в зависимости от типа викторины
         if (QuizType.PERSONALITY.equals(quiz.getQuizType())) {
-            createPersonalityResults(savedQuiz, quizDTO.getResults());
+            quiz.setResults(createPersonalityResults(quiz, quizDTO.getResults()));
         } else {
-            createStandardResults(savedQuiz, quizDTO.getQuestions().size());
+            quiz.setResults(createStandardResults(quiz, quizDTO.getQuestions().size()));
         }
+        return quiz;
+    }
 
-        return savedQuiz;
+    private void validate(QuizCreateDTO quizDTO) {
+        if (isBlank(quizDTO.getTitle())) {
+            throw new IllegalArgumentException("Не указано название викторины");
+        }
+        if (isBlank(quizDTO.getCategory())) {
+            throw new IllegalArgumentException("Не указана категория викторины");
+        }
+        if (isBlank(quizDTO.getDifficulty())) {
+            throw new IllegalArgumentException("Не указана сложность викторины");
+        }
+        if (quizDTO.getQuestions() == null) {
+            throw new IllegalArgumentException("Не указаны вопросы викторины");
+        }
+        for (QuestionDTO question : quizDTO.getQuestions()) {
+            if (question == null || isBlank(question.getQuestion()) || question.getOptions() == null) {
+                throw new IllegalArgumentException("У вопроса должны быть текст и варианты ответа");
+            }
+            for (OptionDTO option : question.getOptions()) {
+                if (option == null || option.getContent() == null || option.getType() == null) {
+                    throw new IllegalArgumentException("У варианта ответа должны быть текст и тип");
+                }
+            }
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 
     private Question convertToQuestion(QuestionDTO questionDTO, Quiz quiz) {
@@ -70,6 +127,10 @@ public class QuizService {
             question.setQuiz(quiz);
             question.setQuestion(questionDTO.getQuestion());
             question.setImage(questionDTO.getImage());
+            if (questionDTO.getOptions().size() > AnswerCodec.MAX_OPTION_INDEX + 1) {
+                // Ответ попытки хранится одним байтом на вопрос, см. AnswerCodec
+                throw new IllegalArgumentException("Слишком много вариантов ответа: " + questionDTO.getOptions().size());
+            }
             
             List<Option> options = questionDTO.getOptions().stream()
                     .map(optionDTO -> {
@@ -91,11 +152,12 @@ public class QuizService {
         }
     }
 
-    private void createPersonalityResults(Quiz quiz, List<Map<String, Object>> results) {
+    private List<QuizResult> createPersonalityResults(Quiz quiz, List<Map<String, Object>> results) {
         if (results == null || results.isEmpty()) {
             throw new RuntimeException("Для теста личности необходимо добавить варианты результатов");
         }
 
+        List<QuizResult> quizResults = new ArrayList<>(results.size());
         results.forEach(resultData -> {
             QuizResult result = new QuizResult();
             result.setQuiz(quiz);
@@ -103,15 +165,33 @@ public class QuizService {
             result.setDescription((String) resultData.get("description"));
             result.setImage((String) resultData.get("image"));
             
-            // Initialize empty maps for traits and target answers
-            result.setPersonalityTraits(new HashMap<>());
+            // Целевые значения характеристик: результатом станет ближайший к ответам, см. AnswerKey
+            result.setPersonalityTraits(toTraits(resultData.get("personalityTraits")));
             result.setTargetAnswers(new HashMap<>());
 
-            quizResultRepository.save(result);
+            quizResults.add(result);
+        });
+        return quizResults;
+    }
+
+    private static Map<String, Integer> toTraits(Object value) {
+        Map<String, Integer> traits = new HashMap<>();
+        if (value == null) {
+            return traits;
+        }
+        if (!(value instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("Характеристики результата должны быть объектом");
+        }
+        map.forEach((name, weight) -> {
+            if (!(weight instanceof Number number)) {
+                throw new IllegalArgumentException("Значение характеристики " + name + " должно быть числом");
+            }
+            traits.put(String.valueOf(name), number.intValue());
         });
+        return traits;
     }
 
-    private void createStandardResults(Quiz quiz, int questionCount) {
+    private List<QuizResult> createStandardResults(Quiz quiz, int questionCount) {
         // Создаем диапазоны результатов для стандартной викторины
         int[] ranges = {0, 40, 60, 80, 100};
         String[] descriptions = {
@@ -121,6 +201,7 @@ public class QuizService {
             "Отличный результат! Вы настоящий эксперт!"
         };
 
+        List<QuizResult> results = new ArrayList<>(descriptions.length);
         for (int i = 0; i < descriptions.length; i++) {
             QuizResult result = new QuizResult();
             result.setQuiz(quiz);
@@ -133,15 +214,65 @@ public class QuizService {
             result.setPersonalityTraits(new HashMap<>());
             result.setTargetAnswers(new HashMap<>());
             
-            quizResultRepository.save(result);
+            results.add(result);
         }
+        return results;
     }
 
     @Transactional(readOnly = true)
-    public List<QuizDTO> getAllQuizzes() {
-        return quizRepository.findAll().stream()
-                .map(QuizDTO::fromEntity)
-                .collect(Collectors.toList());
+    public CursorPage<QuizSummaryDTO> getQuizCatalog(String category, String difficulty, QuizType quizType,
+                                                     Boolean isPublic, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_CATALOG_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        if (after == null) {
+            after = KeysetCursor.FIRST_PAGE;
+        }
+
+        List<QuizSummaryDTO> rows = quizRepository.findCatalogPage(
+                category, difficulty, quizType, isPublic, after.timestamp(), after.id(),
+                PageRequest.ofSize(CursorPage.fetchSize(pageSize)));
+        return CursorPage.of(rows, pageSize, last -> new KeysetCursor(last.getCreatedAt(), last.getId()));
+    }
+
+    /**
+     * Поиск по названию и описанию с фильтрами по индексу в памяти. Результаты идут по релевантности,
+     * без текста запроса - от новых к старым; из базы читаются только викторины выбранной страницы.
+     */
+    @Transactional(readOnly = true)
+    public QuizSearchResultDTO searchQuizzes(String text, String category, String difficulty, String tag,
+                                             int page, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_CATALOG_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        int offset = pageNumber * pageSize;
+        if (offset > MAX_SEARCH_OFFSET) {
+            throw new IllegalArgumentException("Слишком далёкая страница, уточните запрос");
+        }
+
+        QuizSearchIndex.Result result = quizSearchIndex.search(text, category, difficulty, tag,
+                CursorPage.fetchSize(offset + pageSize));
+        List<Long> ids = result.hits().stream()
+                .skip(offset)
+                .limit(pageSize)
+                .map(QuizSearchIndex.Hit::quizId)
+                .toList();
+        Map<Long, QuizSummaryDTO> summaries = quizRepository.findSummariesByIds(ids).stream()
+                .collect(Collectors.toMap(QuizSummaryDTO::getId, summary -> summary));
+        List<QuizSummaryDTO> items = ids.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        result.facets().forEach((facet, counts) -> facets.put(facet, top(counts)));
+        return new QuizSearchResultDTO(items, result.total(), pageNumber, result.hits().size() > offset + pageSize, facets);
+    }
+
+    private static Map<String, Long> top(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_FACET_VALUES)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
     }
 
     @Transactional(readOnly = true)
@@ -153,17 +284,23 @@ public class QuizService {
 
     @Transactional(readOnly = true)
     public Quiz getQuizById(Long id) {
-        return quizRepository.findById(id)
+        return quizRepository.findDetailById(id)
                 .orElseThrow(() -> new RuntimeException("Викторина не найдена"));
     }
 
+    @Transactional(readOnly = true)
+    public QuizDTO getQuizDetail(Long id) {
+        return QuizDTO.fromEntity(getQuizById(id));
+    }
+
     @Transactional
-    public void deleteQuiz(Long id, User user) {
+    public void deleteQuiz(Long id, Long userId) {
         Quiz quiz = getQuizById(id);
-        if (!quiz.getAuthor().getId().equals(user.getId())) {
+        if (!quiz.getAuthor().getId().equals(userId)) {
             throw new RuntimeException("User is not authorized to delete this quiz");
         }
         quizRepository.delete(quiz);
+        eventPublisher.publishEvent(new QuizChangedEvent(id));
         logger.info("Deleted quiz with id: {}", id);
     }
 } 
\ No newline at end of file
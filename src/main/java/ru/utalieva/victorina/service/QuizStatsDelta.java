@@ -0,0 +1,132 @@
+package ru.utalieva.victorina.service;
+
+/**
+ * Приращение сводной статистики одной викторины: пачка новых попыток при записи,
+ * попытки архивируемой секции или все попытки викторины при пересчёте. Не потокобезопасен.
+ */
+public class QuizStatsDelta {
+    /**
+     * Верхние границы корзин гистограммы времени в секундах, последняя корзина - всё, что дольше.
+     * При изменении границ статистику нужно пересчитать.
+     */
+    public static final int[] TIME_BUCKET_BOUNDS = {
+            5, 10, 15, 20, 30, 45, 60, 90, 120, 180, 240, 300, 420, 600, 900, 1200, 1800, 2700, 3600};
+
+    private final Long quizId;
+    private long submitted;
+    private long expired;
+    private long scoreSum;
+    private long questionsSum;
+    private long timeSpentSum;
+    private final long[] timeBuckets = new long[TIME_BUCKET_BOUNDS.length + 1];
+    private final long[] answered;
+    private final long[] correct;
+
+    public QuizStatsDelta(Long quizId, int questionCount) {
+        this.quizId = quizId;
+        this.answered = new long[questionCount];
+        this.correct = new long[questionCount];
+    }
+
+    public static int timeBucketOf(int seconds) {
+        for (int i = 0; i < TIME_BUCKET_BOUNDS.length; i++) {
+            if (seconds < TIME_BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return TIME_BUCKET_BOUNDS.length;
+    }
+
+    /** Учитывает попытку; счёт и время идут в статистику только у отправленных попыток. */
+    public void addAttempt(boolean expiredAttempt, int score, int totalQuestions, int timeSpent) {
+        if (expiredAttempt) {
+            expired++;
+            return;
+        }
+        submitted++;
+        scoreSum += score;
+        questionsSum += totalQuestions;
+        timeSpentSum += timeSpent;
+        timeBuckets[timeBucketOf(Math.max(0, timeSpent))]++;
+    }
+
+    public void addAnswer(int questionIndex, boolean correctAnswer) {
+        answered[questionIndex]++;
+        if (correctAnswer) {
+            correct[questionIndex]++;
+        }
+    }
+
+    /** Добавляет уже посчитанные итоги, например прочитанные из сводных таблиц. */
+    public void addTotals(long submittedAttempts, long expiredAttempts, long score, long questions, long timeSpent) {
+        submitted += submittedAttempts;
+        expired += expiredAttempts;
+        scoreSum += score;
+        questionsSum += questions;
+        timeSpentSum += timeSpent;
+    }
+
+    public void addTimeBucket(int bucket, long attempts) {
+        timeBuckets[bucket] += attempts;
+    }
+
+    public void addAnswers(int questionIndex, long answeredCount, long correctCount) {
+        answered[questionIndex] += answeredCount;
+        correct[questionIndex] += correctCount;
+    }
+
+    /** Прибавляет другое приращение той же викторины; вопросы сверх своего числа отбрасываются. */
+    public void add(QuizStatsDelta other) {
+        addTotals(other.submitted, other.expired, other.scoreSum, other.questionsSum, other.timeSpentSum);
+        for (int b = 0; b < timeBuckets.length; b++) {
+            timeBuckets[b] += other.timeBuckets[b];
+        }
+        for (int q = 0; q < Math.min(answered.length, other.answered.length); q++) {
+            addAnswers(q, other.answered[q], other.correct[q]);
+        }
+    }
+
+    public Long getQuizId() {
+        return quizId;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public long getScoreSum() {
+        return scoreSum;
+    }
+
+    public long getQuestionsSum() {
+        return questionsSum;
+    }
+
+    public long getTimeSpentSum() {
+        return timeSpentSum;
+    }
+
+    public int getTimeBucketCount() {
+        return timeBuckets.length;
+    }
+
+    public long getTimeBucket(int bucket) {
+        return timeBuckets[bucket];
+    }
+
+    public int getQuestionCount() {
+        return answered.length;
+    }
+
+    public long getAnswered(int questionIndex) {
+        return answered[questionIndex];
+    }
+
+    public long getCorrect(int questionIndex) {
+        return correct[questionIndex];
+    }
+}
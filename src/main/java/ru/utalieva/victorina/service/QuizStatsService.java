@@ -0,0 +1,238 @@
+package ru.utalieva.victorina.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.utalieva.victorina.exception.ResourceNotFoundException;
+import ru.utalieva.victorina.model.converter.AnswerCodec;
+import ru.utalieva.victorina.model.dto.QuestionStatsDTO;
+import ru.utalieva.victorina.model.dto.QuizStatsDTO;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
+import ru.utalieva.victorina.repository.QuizAttemptPartitionRepository;
+import ru.utalieva.victorina.repository.QuizRepository;
+import ru.utalieva.victorina.repository.QuizStatsRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сводная статистика викторин. Приращения пишутся в транзакции вставки попыток,
+ * поэтому чтение статистики стоит O(вопросов) независимо от числа попыток.
+ * rebuild пересчитывает статистику викторины из quiz_attempts, например после появления таблиц.
+ * Попытки из архивированных секций пересчёт прочитать не может, поэтому при архивации их доля
+ * откладывается в архивную статистику, и rebuild начинает с неё, а не с нуля.
+ */
+@Service
+public class QuizStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(QuizStatsService.class);
+
+    private final QuizStatsRepository quizStatsRepository;
+    private final QuizRepository quizRepository;
+    private final QuizAttemptPartitionRepository partitionRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean backfillOnStartup;
+
+    public QuizStatsService(QuizStatsRepository quizStatsRepository,
+                            QuizRepository quizRepository,
+                            QuizAttemptPartitionRepository partitionRepository,
+                            AnswerKeyCache answerKeyCache,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${quiz.stats.backfill-on-startup:false}") boolean backfillOnStartup) {
+        this.quizStatsRepository = quizStatsRepository;
+        this.quizRepository = quizRepository;
+        this.partitionRepository = partitionRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.transactionTemplate = transactionTemplate;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    /** Учитывает только что вставленные попытки; вызывается в транзакции вставки. */
+    public void record(List<ScoredSubmission> submissions) {
+        Map<Long, QuizStatsDelta> deltas = new LinkedHashMap<>();
+        for (ScoredSubmission submission : submissions) {
+            AnswerKey answerKey;
+            try {
+                answerKey = answerKeyCache.get(submission.quizId());
+            } catch (ResourceNotFoundException e) {
+                logger.warn("Quiz {} not found, attempt {} is not counted in stats",
+                        submission.quizId(), submission.attemptId());
+                continue;
+            }
+            QuizStatsDelta delta = deltas.computeIfAbsent(submission.quizId(),
+                    quizId -> new QuizStatsDelta(quizId, answerKey.getQuestionCount()));
+            add(delta, answerKey, submission.expired(), submission.score(), submission.totalQuestions(),
+                    submission.timeSpent(), submission.answers());
+        }
+        quizStatsRepository.apply(new ArrayList<>(deltas.values()));
+    }
+
+    /**
+     * Доля статистики от завершённых попыток секции quiz_attempts, по викторинам; попытки удалённых
+     * викторин пропускаются. Секция читается курсором: вызывать в транзакции.
+     */
+    public List<QuizStatsDelta> collectPartition(String partitionName) {
+        Map<Long, Optional<AnswerKey>> answerKeys = new HashMap<>();
+        Map<Long, QuizStatsDelta> deltas = new HashMap<>();
+        partitionRepository.forEachCompletedAttempt(partitionName, rs -> {
+            long quizId = rs.getLong(1);
+            AnswerKey answerKey = answerKeys.computeIfAbsent(quizId, this::findAnswerKey).orElse(null);
+            if (answerKey == null) {
+                return;
+            }
+            QuizStatsDelta delta = deltas.computeIfAbsent(quizId,
+                    id -> new QuizStatsDelta(id, answerKey.getQuestionCount()));
+            add(delta, answerKey, rs.getBoolean(2), rs.getInt(3), rs.getInt(4), rs.getInt(5),
+                    AnswerCodec.decode(rs.getBytes(6)));
+        });
+        return new ArrayList<>(deltas.values());
+    }
+
+    /**
+     * Откладывает долю архивируемой секции в архивную статистику; вызывается в той же транзакции,
+     * что отключает секцию. Строки викторин блокируются как при пересчёте, поэтому пересчёт видит
+     * эти попытки либо среди quiz_attempts, либо в архивной доле, но не дважды и не ни разу.
+     */
+    public void archive(List<QuizStatsDelta> deltas) {
+        quizStatsRepository.lock(deltas.stream().map(QuizStatsDelta::getQuizId).toList());
+        quizStatsRepository.applyArchived(deltas);
+    }
+
+    // REPEATABLE READ: три чтения видят одно и то же состояние сводных таблиц
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public QuizStatsDTO getStats(Long quizId) {
+        AnswerKey answerKey = answerKeyCache.get(quizId);
+        QuizStatsDelta stats = quizStatsRepository.find(quizId, answerKey.getQuestionCount())
+                .orElseGet(() -> new QuizStatsDelta(quizId, answerKey.getQuestionCount()));
+        return toDto(stats, answerKey.isPersonality());
+    }
+
+    /** Пересчёт статистики викторины автором; новые попытки этой викторины ждут его окончания. */
+    public void rebuild(Long quizId, Long userId) {
+        Long authorId = quizRepository.findAuthorIdById(quizId)
+                .orElseThrow(() -> new ResourceNotFoundException("Quiz not found"));
+        if (!authorId.equals(userId)) {
+            throw new IllegalStateException("Пересчитать статистику может только автор викторины");
+        }
+        rebuild(quizId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        List<Long> quizIds = quizStatsRepository.findQuizIdsWithAttempts();
+        logger.info("Rebuilding stats for {} quizzes", quizIds.size());
+        for (Long quizId : quizIds) {
+            try {
+                rebuild(quizId);
+            } catch (RuntimeException e) {
+                logger.error("Failed to rebuild stats for quiz {}", quizId, e);
+            }
+        }
+    }
+
+    private void rebuild(Long quizId) {
+        AnswerKey answerKey = answerKeyCache.get(quizId);
+        transactionTemplate.executeWithoutResult(status -> {
+            // Блокировка до чтения попыток: уже закоммиченные попадут в пересчёт, новые добавятся после него
+            quizStatsRepository.lock(quizId);
+            QuizStatsDelta stats = quizStatsRepository.findArchived(quizId, answerKey.getQuestionCount())
+                    .orElseGet(() -> new QuizStatsDelta(quizId, answerKey.getQuestionCount()));
+            quizStatsRepository.forEachAttempt(quizId, rs -> add(stats, answerKey, rs.getBoolean(1), rs.getInt(2),
+                    rs.getInt(3), rs.getInt(4), AnswerCodec.decode(rs.getBytes(5))));
+            quizStatsRepository.replace(stats);
+            logger.info("Rebuilt stats for quiz {}: {} submitted, {} expired",
+                    quizId, stats.getSubmitted(), stats.getExpired());
+        });
+    }
+
+    private Optional<AnswerKey> findAnswerKey(Long quizId) {
+        try {
+            return Optional.of(answerKeyCache.get(quizId));
+        } catch (ResourceNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void add(QuizStatsDelta delta, AnswerKey answerKey, boolean expired, int score, int totalQuestions,
+                     int timeSpent, Map<Integer, Integer> answers) {
+        delta.addAttempt(expired, score, totalQuestions, timeSpent);
+        if (answers == null) {
+            return;
+        }
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            Integer questionIndex = answer.getKey();
+            Integer optionIndex = answer.getValue();
+            if (optionIndex != null && answerKey.isValidAnswer(questionIndex, optionIndex)) {
+                delta.addAnswer(questionIndex, answerKey.isCorrect(questionIndex, optionIndex));
+            }
+        }
+    }
+
+    private QuizStatsDTO toDto(QuizStatsDelta stats, boolean personality) {
+        QuizStatsDTO dto = new QuizStatsDTO();
+        dto.setQuizId(stats.getQuizId());
+        dto.setSubmitted(stats.getSubmitted());
+        dto.setExpired(stats.getExpired());
+        long closed = stats.getSubmitted() + stats.getExpired();
+        if (closed > 0) {
+            dto.setCompletionRate((double) stats.getSubmitted() / closed);
+        }
+        if (stats.getSubmitted() > 0) {
+            if (!personality) {
+                dto.setAverageScore((double) stats.getScoreSum() / stats.getSubmitted());
+                if (stats.getQuestionsSum() > 0) {
+                    dto.setAverageScorePercent(100.0 * stats.getScoreSum() / stats.getQuestionsSum());
+                }
+            }
+            dto.setAverageTimeSpent((double) stats.getTimeSpentSum() / stats.getSubmitted());
+            dto.setMedianTimeSpent(median(stats));
+        }
+
+        List<QuestionStatsDTO> questions = new ArrayList<>(stats.getQuestionCount());
+        for (int q = 0; q < stats.getQuestionCount(); q++) {
+            long answered = stats.getAnswered(q);
+            if (personality) {
+                questions.add(new QuestionStatsDTO(q, answered, null, null));
+            } else {
+                long correct = stats.getCorrect(q);
+                questions.add(new QuestionStatsDTO(q, answered, correct,
+                        answered > 0 ? (double) correct / answered : null));
+            }
+        }
+        dto.setQuestions(questions);
+        return dto;
+    }
+
+    /** Медиана по гистограмме с линейной интерполяцией внутри корзины. */
+    private static Integer median(QuizStatsDelta stats) {
+        double half = stats.getSubmitted() / 2.0;
+        long seen = 0;
+        for (int bucket = 0; bucket < stats.getTimeBucketCount(); bucket++) {
+            long count = stats.getTimeBucket(bucket);
+            if (count > 0 && seen + count >= half) {
+                int lower = bucket == 0 ? 0 : QuizStatsDelta.TIME_BUCKET_BOUNDS[bucket - 1];
+                if (bucket == QuizStatsDelta.TIME_BUCKET_BOUNDS.length) {
+                    // У последней корзины нет верхней границы
+                    return lower;
+                }
+                int upper = QuizStatsDelta.TIME_BUCKET_BOUNDS[bucket];
+                return (int) Math.round(lower + (upper - lower) * (half - seen) / count);
+            }
+            seen += count;
+        }
+        return null;
+    }
+}
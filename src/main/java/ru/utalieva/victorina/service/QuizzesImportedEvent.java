@@ -0,0 +1,10 @@
+package ru.utalieva.victorina.service;
+
+import java.util.List;
+
+/**
+ * Публикуется при массовом импорте, одно событие на сохранённую пачку.
+ * Викторины новые, поэтому сбрасывать кэши не нужно - подписан только индекс поиска.
+ */
+public record QuizzesImportedEvent(List<Long> quizIds) {
+}
@@ -0,0 +1,140 @@
+package ru.utalieva.victorina.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Индексируемый skip list: вставка, удаление и ранг элемента за O(log n).
+ * Каждое звено хранит длину прыжка (span), поэтому позиция считается без обхода списка.
+ * Порядок должен быть строгим (равны только одинаковые элементы). Не потокобезопасен.
+ */
+final class RankedSkipList<T> {
+    private static final int MAX_LEVEL = 32;
+
+    private final Comparator<? super T> comparator;
+    private final Node<T> head = new Node<>(null, MAX_LEVEL);
+    private int level = 1;
+    private int size;
+
+    RankedSkipList(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void insert(T value) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && comparator.compare(x.next[i].value, value) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node<T> node = new Node<>(value, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    boolean remove(T value) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] update = new Node[MAX_LEVEL];
+
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].value, value) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        Node<T> target = x.next[0];
+        if (target == null || comparator.compare(target.value, value) != 0) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /** Количество элементов строго меньше value; value может и не быть в списке. */
+    int countLessThan(T value) {
+        int rank = 0;
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].value, value) < 0) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return rank;
+    }
+
+    List<T> first(int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, size));
+        for (Node<T> x = head.next[0]; x != null && result.size() < limit; x = x.next[0]) {
+            result.add(x.value);
+        }
+        return result;
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextInt(4) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static final class Node<T> {
+        private final T value;
+        private final Node<T>[] next;
+        private final int[] span;
+
+        @SuppressWarnings("unchecked")
+        private Node(T value, int level) {
+            this.value = value;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
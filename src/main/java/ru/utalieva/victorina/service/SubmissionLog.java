@@ -0,0 +1,211 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Локальный журнал отправок: одна JSON-строка на отправку, дописывается с fsync
+ * до ответа клиенту. Журнал состоит из сегментов path.1, path.2, ...: когда текущий сегмент
+ * дорастает до segmentBytes, записи идут в следующий. Отправки сохраняются в базу в порядке записи,
+ * поэтому подтверждение - это число сохранённых записей от начала журнала; сегмент, все записи
+ * которого подтверждены, удаляется, не дожидаясь, пока опустеет очередь.
+ * Вызывающий код сам синхронизирует доступ.
+ */
+final class SubmissionLog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionLog.class);
+
+    private final Path path;
+    private final long segmentBytes;
+    private final ObjectMapper objectMapper;
+    // Файлы прошлых запусков, включая журнал без номера сегмента; удаляются после replace
+    private final List<Path> recovered;
+    // Заполненные сегменты текущего запуска, от старых к новым
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private Path activePath;
+    private FileChannel channel;
+    private long nextIndex;
+    // Записей от начала журнала: дописано и подтверждено
+    private long appended;
+    private long acknowledged;
+
+    SubmissionLog(Path path, long segmentBytes, ObjectMapper objectMapper) {
+        this.path = path;
+        this.segmentBytes = segmentBytes;
+        this.objectMapper = objectMapper;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            TreeMap<Long, Path> existing = existingSegments(path);
+            this.recovered = new ArrayList<>(existing.values());
+            this.nextIndex = existing.isEmpty() ? 1 : existing.lastKey() + 1;
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал отправок " + path, e);
+        }
+    }
+
+    /** Есть ли на диске журнал прошлого запуска. */
+    static boolean exists(Path path) {
+        try {
+            return !existingSegments(path).isEmpty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог журнала отправок " + path, e);
+        }
+    }
+
+    /** Дописывает отправки и делает один fsync на всю пачку. */
+    void append(List<ScoredSubmission> submissions) {
+        try {
+            for (ScoredSubmission submission : submissions) {
+                byte[] json = objectMapper.writeValueAsBytes(submission);
+                ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(false);
+            appended += submissions.size();
+            if (channel.size() >= segmentBytes) {
+                channel.close();
+                sealed.addLast(new Segment(activePath, appended));
+                openSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать отправку в журнал " + path, e);
+        }
+    }
+
+    /**
+     * Отправки прошлых запусков из всех сегментов по порядку; повреждённые строки
+     * (например, недописанная при сбое) пропускаются.
+     */
+    List<ScoredSubmission> readRecovered() {
+        List<ScoredSubmission> submissions = new ArrayList<>();
+        for (Path segment : recovered) {
+            try {
+                for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        submissions.add(objectMapper.readValue(line, ScoredSubmission.class));
+                    } catch (IOException e) {
+                        logger.warn("Skipping corrupted submission log entry: {}", line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать журнал отправок " + segment, e);
+            }
+        }
+        return submissions;
+    }
+
+    /**
+     * Переписывает несохранённые отправки прошлых запусков в текущий сегмент и удаляет старые файлы.
+     * После этого записи журнала идут в том же порядке, что и очередь записи в базу.
+     */
+    void replaceRecovered(List<ScoredSubmission> unsaved) {
+        if (!unsaved.isEmpty()) {
+            append(unsaved);
+        }
+        for (Path segment : recovered) {
+            delete(segment);
+        }
+        recovered.clear();
+    }
+
+    /**
+     * Отмечает сохранёнными следующие count записей. Подтверждённые целиком сегменты удаляются,
+     * текущий сегмент очищается, если подтверждено всё записанное.
+     */
+    void acknowledge(int count) {
+        acknowledged += count;
+        while (!sealed.isEmpty() && sealed.peekFirst().end() <= acknowledged) {
+            delete(sealed.removeFirst().path());
+        }
+        if (sealed.isEmpty() && acknowledged == appended) {
+            try {
+                if (channel.size() > 0) {
+                    channel.truncate(0);
+                    channel.force(true);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось очистить журнал отправок " + activePath, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close submission log {}", activePath, e);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        activePath = segmentPath(path, nextIndex++);
+        channel = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            // Повтор оставшихся записей безопасен: вставка попытки идемпотентна
+            logger.warn("Failed to delete submission log segment {}", segment, e);
+        }
+    }
+
+    static Path segmentPath(Path path, long index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    /** Сегменты журнала по номеру; файл без номера - журнал прежнего формата, он старше всех. */
+    private static TreeMap<Long, Path> existingSegments(Path path) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>(Comparator.naturalOrder());
+        if (Files.exists(path)) {
+            segments.put(0L, path);
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return segments;
+        }
+        String prefix = path.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(suffix), path.resolveSibling(file.getFileName()));
+                }
+            }
+        }
+        return segments;
+    }
+
+    /** Заполненный сегмент; end - число записей журнала по его последнюю включительно. */
+    private record Segment(Path path, long end) {
+    }
+}
@@ -0,0 +1,255 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.utalieva.victorina.model.dto.AttemptScore;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
+import ru.utalieva.victorina.repository.QuizAttemptJdbcRepository;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Запись завершённых попыток в quiz_attempts. В режиме quiz.submission.mode=batched попытки
+ * пишутся в локальный журнал с fsync и сразу подтверждаются клиенту, а в базу попадают из фонового
+ * потока JDBC-пачками. Пачки сохраняются в порядке записи в журнал, и сегменты журнала удаляются
+ * по мере подтверждения. После перезапуска несохранённые отправки повторяются из журнала,
+ * при остановке приложения очередь дописывается в базу.
+ */
+@Component
+public class SubmissionWriteBehind implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionWriteBehind.class);
+
+    private static final long POLL_TIMEOUT_MS = 500;
+    private static final long MAX_BACKOFF_MS = 10_000;
+    private static final int BATCH_RETRIES = 3;
+
+    private final QuizAttemptJdbcRepository quizAttemptJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final QuizStatsService quizStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Path logPath;
+    private final long logSegmentBytes;
+
+    private final BlockingQueue<ScoredSubmission> queue = new LinkedBlockingQueue<>();
+    // Запись в журнал и постановка в очередь под одной блокировкой: очередь идёт в порядке журнала
+    private final ReentrantLock logLock = new ReentrantLock();
+    private SubmissionLog log;
+    private Thread writer;
+    private volatile boolean running;
+
+    public SubmissionWriteBehind(QuizAttemptJdbcRepository quizAttemptJdbcRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 QuizStatsService quizStatsService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 ObjectMapper objectMapper,
+                                 @Value("${quiz.submission.mode:sync}") String mode,
+                                 @Value("${quiz.submission.batch-size:100}") int batchSize,
+                                 @Value("${quiz.submission.log-path:data/submissions.log}") Path logPath,
+                                 @Value("${quiz.submission.log-segment-size:16MB}") DataSize logSegmentSize) {
+        this.quizAttemptJdbcRepository = quizAttemptJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.quizStatsService = quizStatsService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.enabled = "batched".equalsIgnoreCase(mode);
+        this.batchSize = batchSize;
+        this.logPath = logPath;
+        this.logSegmentBytes = logSegmentSize.toBytes();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Сохраняет завершённую попытку. В режиме sync строка вставляется сразу в отдельной транзакции,
+     * в режиме batched попытка пишется в журнал и ставится в очередь; после возврата она переживёт
+     * падение процесса.
+     */
+    public void save(ScoredSubmission submission) {
+        saveAll(List.of(submission));
+    }
+
+    /** То же для нескольких попыток: одна транзакция в режиме sync, один fsync в режиме batched. */
+    public void saveAll(List<ScoredSubmission> submissions) {
+        if (!enabled) {
+            persist(submissions);
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Приём отправок остановлен");
+        }
+        logLock.lock();
+        try {
+            log.append(submissions);
+            queue.addAll(submissions);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled && !SubmissionLog.exists(logPath)) {
+            return;
+        }
+        log = new SubmissionLog(logPath, logSegmentBytes, objectMapper);
+
+        // Отправки, не сохранённые до прошлой остановки; повтор одной и той же попытки не нужен
+        Map<Long, ScoredSubmission> unsaved = new LinkedHashMap<>();
+        log.readRecovered().forEach(submission -> unsaved.put(submission.attemptId(), submission));
+        log.replaceRecovered(new ArrayList<>(unsaved.values()));
+        if (!unsaved.isEmpty()) {
+            logger.info("Replaying {} submissions from {}", unsaved.size(), logPath);
+            queue.addAll(unsaved.values());
+        }
+
+        running = true;
+        writer = new Thread(this::run, "submission-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<ScoredSubmission> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            try {
+                persist(remaining);
+                completed(remaining);
+                logger.info("Flushed {} submissions on shutdown", remaining.size());
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush {} submissions on shutdown, they stay in {}", remaining.size(), logPath, e);
+            }
+        }
+        log.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Останавливается после веб-сервера, когда новых отправок уже не будет
+        return DEFAULT_PHASE - 4096;
+    }
+
+    private void run() {
+        List<ScoredSubmission> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ScoredSubmission first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<ScoredSubmission> batch) throws InterruptedException {
+        long backoff = 100;
+        for (int failures = 0; ; failures++) {
+            try {
+                if (failures < BATCH_RETRIES) {
+                    persist(batch);
+                } else {
+                    // Пачка не проходит: пишем по одной, чтобы найти испорченную запись
+                    persistEach(batch);
+                }
+                completed(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    // Допишет stop() одной пачкой со всей очередью или следующий запуск из журнала
+                    queue.addAll(batch);
+                    return;
+                }
+                logger.warn("Failed to persist {} submissions, retrying in {} ms", batch.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void persistEach(List<ScoredSubmission> batch) {
+        for (ScoredSubmission submission : batch) {
+            try {
+                persist(List.of(submission));
+            } catch (NonTransientDataAccessException e) {
+                logger.error("Dropping submission that cannot be saved: {}", submission, e);
+            }
+        }
+    }
+
+    private void persist(List<ScoredSubmission> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean[] inserted = quizAttemptJdbcRepository.insertCompleted(batch);
+            List<ScoredSubmission> saved = new ArrayList<>(batch.size());
+            for (int i = 0; i < inserted.length; i++) {
+                ScoredSubmission submission = batch.get(i);
+                if (!inserted[i]) {
+                    logger.warn("Attempt {} is already saved, submission skipped", submission.attemptId());
+                    continue;
+                }
+                saved.add(submission);
+                if (submission.ranked()) {
+                    // Рейтинг обновится после коммита
+                    eventPublisher.publishEvent(new AttemptCompletedEvent(submission.quizId(), new AttemptScore(
+                            submission.attemptId(), submission.userId(), submission.score(), submission.timeSpent())));
+                }
+            }
+            // Статистика в той же транзакции: повтор пачки не посчитает попытку дважды
+            quizStatsService.record(saved);
+        });
+    }
+
+    private void completed(List<ScoredSubmission> batch) {
+        logLock.lock();
+        try {
+            // Очередь сохраняется по порядку, так что пачка - следующие записи журнала
+            log.acknowledge(batch.size());
+        } finally {
+            logLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.utalieva.victorina.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хешированное колесо таймеров: ключ кладётся в ячейку номера своего тика по модулю размера колеса.
+ * Продвижение на один тик просматривает одну ячейку, а не все таймеры; ключ, до срока которого
+ * ещё не один оборот, просто остаётся в ячейке. Точность срабатывания - один тик.
+ */
+final class TimingWheel<K> {
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final List<List<Timer<K>>> buckets;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long currentTick;
+
+    TimingWheel(int wheelSize, Duration tick, Instant start) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Размер колеса должен быть степенью двойки: " + wheelSize);
+        }
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.startMillis = start.toEpochMilli();
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = tickOf(start);
+    }
+
+    void schedule(K key, Instant deadline) {
+        // Округляем вверх: таймер не срабатывает раньше срока
+        long tick = Math.ceilDiv(deadline.toEpochMilli() - startMillis, tickMillis);
+        lock.lock();
+        try {
+            tick = Math.max(tick, currentTick + 1);
+            buckets.get((int) (tick & mask)).add(new Timer<>(key, tick));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Продвигает колесо до момента now и возвращает ключи, срок которых наступил. */
+    List<K> advance(Instant now) {
+        long nowTick = tickOf(now);
+        List<K> due = new ArrayList<>();
+        lock.lock();
+        try {
+            // После долгой паузы достаточно одного оборота: каждую ячейку смотрим не больше раза
+            long from = Math.max(currentTick + 1, nowTick - mask);
+            for (long tick = from; tick <= nowTick; tick++) {
+                Iterator<Timer<K>> timers = buckets.get((int) (tick & mask)).iterator();
+                while (timers.hasNext()) {
+                    Timer<K> timer = timers.next();
+                    if (timer.tick() <= nowTick) {
+                        due.add(timer.key());
+                        timers.remove();
+                    }
+                }
+            }
+            currentTick = Math.max(currentTick, nowTick);
+        } finally {
+            lock.unlock();
+        }
+        return due;
+    }
+
+    private long tickOf(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli() - startMillis, tickMillis);
+    }
+
+    private record Timer<K>(K key, long tick) {
+    }
+}
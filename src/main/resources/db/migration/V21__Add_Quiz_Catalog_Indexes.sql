@@ -0,0 +1,6 @@
+-- Keyset-пагинация каталога: ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_quizzes_created_at_id ON quizzes (created_at DESC, id DESC);
+
+-- Подсчёт вопросов и результатов в сводке каталога
+CREATE INDEX idx_questions_quiz_id ON questions (quiz_id);
+CREATE INDEX idx_quiz_results_quiz_id ON quiz_results (quiz_id);
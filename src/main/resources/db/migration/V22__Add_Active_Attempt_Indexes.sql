@@ -0,0 +1,15 @@
+-- До этой миграции можно было начать викторину несколько раз подряд: оставляем только последнюю открытую попытку
+DELETE FROM quiz_attempts qa
+WHERE qa.is_completed = FALSE
+  AND EXISTS (SELECT 1
+              FROM quiz_attempts newer
+              WHERE newer.user_id = qa.user_id
+                AND newer.quiz_id = qa.quiz_id
+                AND newer.is_completed = FALSE
+                AND newer.id > qa.id);
+
+-- Не больше одной открытой попытки на пользователя и викторину; по нему же ищется активная попытка
+CREATE UNIQUE INDEX uq_quiz_attempts_active ON quiz_attempts (user_id, quiz_id) WHERE is_completed = FALSE;
+
+-- История попыток пользователя: WHERE user_id = ? ORDER BY end_time DESC
+CREATE INDEX idx_quiz_attempts_user_end_time ON quiz_attempts (user_id, end_time DESC);
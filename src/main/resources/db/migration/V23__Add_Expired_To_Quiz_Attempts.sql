@@ -0,0 +1,2 @@
+-- Попытка, завершённая сервером по истечении времени, а не отправленная пользователем
+ALTER TABLE quiz_attempts ADD COLUMN expired BOOLEAN NOT NULL DEFAULT FALSE;
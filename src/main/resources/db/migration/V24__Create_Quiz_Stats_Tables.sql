@@ -0,0 +1,30 @@
+-- Сводная статистика викторин. Обновляется в той же транзакции, что и вставка попытки,
+-- поэтому /api/quizzes/{id}/stats не читает quiz_attempts. Пересчёт из попыток - QuizStatsService.rebuild
+
+-- Счётчики по викторине: score_sum, questions_sum и time_spent_sum - по отправленным попыткам
+CREATE TABLE quiz_stats (
+    quiz_id BIGINT PRIMARY KEY REFERENCES quizzes(id) ON DELETE CASCADE,
+    submitted BIGINT NOT NULL DEFAULT 0,
+    expired BIGINT NOT NULL DEFAULT 0,
+    score_sum BIGINT NOT NULL DEFAULT 0,
+    questions_sum BIGINT NOT NULL DEFAULT 0,
+    time_spent_sum BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Ответы на каждый вопрос по всем попыткам, в том числе истёкшим
+CREATE TABLE question_stats (
+    quiz_id BIGINT NOT NULL REFERENCES quizzes(id) ON DELETE CASCADE,
+    question_index INTEGER NOT NULL,
+    answered BIGINT NOT NULL DEFAULT 0,
+    correct BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (quiz_id, question_index)
+);
+
+-- Гистограмма времени прохождения отправленных попыток; границы корзин заданы в QuizStatsDelta
+CREATE TABLE quiz_time_buckets (
+    quiz_id BIGINT NOT NULL REFERENCES quizzes(id) ON DELETE CASCADE,
+    bucket INTEGER NOT NULL,
+    attempts BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (quiz_id, bucket)
+);
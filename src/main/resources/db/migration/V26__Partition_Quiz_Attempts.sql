@@ -0,0 +1,62 @@
+-- quiz_attempts секционируется по месяцам start_time. Ключ секционирования входит в первичный ключ,
+-- поэтому PK становится (id, start_time); новые месячные секции создаёт QuizAttemptPartitionService при старте.
+
+ALTER TABLE quiz_attempts RENAME TO quiz_attempts_unpartitioned;
+-- Последовательность принадлежит старому столбцу id и удалилась бы вместе со старой таблицей
+ALTER SEQUENCE quiz_attempts_id_seq OWNED BY NONE;
+ALTER TABLE quiz_attempts_unpartitioned RENAME CONSTRAINT quiz_attempts_pkey TO quiz_attempts_unpartitioned_pkey;
+ALTER TABLE quiz_attempts_unpartitioned RENAME CONSTRAINT quiz_attempts_quiz_id_fkey TO quiz_attempts_unpartitioned_quiz_id_fkey;
+ALTER TABLE quiz_attempts_unpartitioned RENAME CONSTRAINT quiz_attempts_user_id_fkey TO quiz_attempts_unpartitioned_user_id_fkey;
+ALTER TABLE quiz_attempts_unpartitioned RENAME CONSTRAINT fk_quiz_attempt_personality_result TO quiz_attempts_unpartitioned_personality_result_fkey;
+-- Открытых попыток в таблице больше нет: активные попытки живут в памяти
+DROP INDEX uq_quiz_attempts_active;
+DROP INDEX idx_quiz_attempts_user_end_time;
+
+CREATE TABLE quiz_attempts (
+    id BIGINT NOT NULL DEFAULT nextval('quiz_attempts_id_seq'),
+    quiz_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    score INTEGER NOT NULL,
+    total_questions INTEGER NOT NULL,
+    time_spent INTEGER NOT NULL,
+    start_time TIMESTAMP NOT NULL,
+    end_time TIMESTAMP,
+    is_completed BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    personality_result_id BIGINT,
+    expired BOOLEAN NOT NULL DEFAULT FALSE,
+    user_answers BYTEA,
+    CONSTRAINT quiz_attempts_pkey PRIMARY KEY (id, start_time),
+    CONSTRAINT quiz_attempts_quiz_id_fkey FOREIGN KEY (quiz_id) REFERENCES quizzes(id),
+    CONSTRAINT quiz_attempts_user_id_fkey FOREIGN KEY (user_id) REFERENCES users(id),
+    CONSTRAINT fk_quiz_attempt_personality_result FOREIGN KEY (personality_result_id) REFERENCES quiz_results(id)
+) PARTITION BY RANGE (start_time);
+
+-- Строки вне созданных месячных секций; QuizAttemptPartitionService переносит их при создании секции
+CREATE TABLE quiz_attempts_default PARTITION OF quiz_attempts DEFAULT;
+
+-- Месячные секции под существующие данные и текущий месяц
+DO $$
+DECLARE
+    month DATE := date_trunc('month', COALESCE((SELECT min(start_time) FROM quiz_attempts_unpartitioned), now()));
+BEGIN
+    WHILE month <= date_trunc('month', now()) LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF quiz_attempts FOR VALUES FROM (%L) TO (%L)',
+                       'quiz_attempts_p' || to_char(month, 'YYYYMM'), month, month + INTERVAL '1 month');
+        month := month + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO quiz_attempts (id, quiz_id, user_id, score, total_questions, time_spent, start_time, end_time,
+                           is_completed, created_at, updated_at, personality_result_id, expired, user_answers)
+SELECT id, quiz_id, user_id, score, total_questions, time_spent, start_time, end_time,
+       is_completed, created_at, updated_at, personality_result_id, expired, user_answers
+FROM quiz_attempts_unpartitioned;
+
+DROP TABLE quiz_attempts_unpartitioned;
+
+-- История попыток пользователя: WHERE user_id = ? ORDER BY end_time DESC
+CREATE INDEX idx_quiz_attempts_user_end_time ON quiz_attempts (user_id, end_time DESC);
+-- Загрузка рейтинга и пересчёт статистики викторины
+CREATE INDEX idx_quiz_attempts_quiz_id ON quiz_attempts (quiz_id);
@@ -0,0 +1,9 @@
+-- Лексемы для поиска викторин с русской морфологией: название весит больше описания.
+-- Столбец вычисляет сам PostgreSQL; по нему строится индекс поиска в памяти (QuizSearchIndex)
+ALTER TABLE quizzes ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', COALESCE(title, '')), 'A') ||
+    setweight(to_tsvector('russian', COALESCE(description, '')), 'B')
+) STORED;
+
+-- Загрузка тегов викторины; у quiz_tags не было ни одного индекса
+CREATE INDEX idx_quiz_tags_quiz_id ON quiz_tags (quiz_id);
@@ -0,0 +1,2 @@
+-- Варианты ответа читаются по списку вопросов (выгрузка, подгрузка вопросов викторины); индекса по question_id не было
+CREATE INDEX idx_options_question_id ON options (question_id);
@@ -0,0 +1,7 @@
+-- Hibernate берёт номера викторин, вопросов, вариантов и результатов блоками по 50 (оптимизатор pooled):
+-- значение nextval - верхняя граница блока, поэтому шаг последовательности должен совпадать с allocationSize.
+-- DEFAULT nextval(...) у столбцов остаётся: вставка из SQL просто займёт отдельный блок
+ALTER SEQUENCE quizzes_id_seq INCREMENT BY 50;
+ALTER SEQUENCE questions_id_seq INCREMENT BY 50;
+ALTER SEQUENCE options_id_seq INCREMENT BY 50;
+ALTER SEQUENCE quiz_results_id_seq INCREMENT BY 50;
@@ -0,0 +1,29 @@
+-- Доля сводной статистики, которую внесли попытки из уже архивированных секций quiz_attempts.
+-- Её прибавляет QuizAttemptPartitionService в транзакции отключения секции, а QuizStatsService.rebuild
+-- складывает её с пересчётом по оставшимся попыткам. Секции, архивированные до этой миграции, здесь не учтены.
+-- Таблицы повторяют quiz_stats, question_stats и quiz_time_buckets
+
+CREATE TABLE quiz_stats_archived (
+    quiz_id BIGINT PRIMARY KEY REFERENCES quizzes(id) ON DELETE CASCADE,
+    submitted BIGINT NOT NULL DEFAULT 0,
+    expired BIGINT NOT NULL DEFAULT 0,
+    score_sum BIGINT NOT NULL DEFAULT 0,
+    questions_sum BIGINT NOT NULL DEFAULT 0,
+    time_spent_sum BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE question_stats_archived (
+    quiz_id BIGINT NOT NULL REFERENCES quizzes(id) ON DELETE CASCADE,
+    question_index INTEGER NOT NULL,
+    answered BIGINT NOT NULL DEFAULT 0,
+    correct BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (quiz_id, question_index)
+);
+
+CREATE TABLE quiz_time_buckets_archived (
+    quiz_id BIGINT NOT NULL REFERENCES quizzes(id) ON DELETE CASCADE,
+    bucket INTEGER NOT NULL,
+    attempts BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (quiz_id, bucket)
+);
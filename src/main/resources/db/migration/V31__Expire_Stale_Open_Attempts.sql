@@ -0,0 +1,10 @@
+-- Незавершённые попытки, перенесённые V26 из старой таблицы. Активные попытки теперь живут только в памяти,
+-- поэтому такие строки уже никто не завершит: закрываем их так же, как сервер закрывает попытку
+-- с истёкшим временем, с ответами, принятыми до этого момента.
+-- В сводную статистику они попадут после пересчёта (quiz.stats.backfill-on-startup=true)
+UPDATE quiz_attempts
+SET is_completed = TRUE,
+    expired = TRUE,
+    end_time = COALESCE(end_time, start_time),
+    updated_at = CURRENT_TIMESTAMP
+WHERE is_completed = FALSE;
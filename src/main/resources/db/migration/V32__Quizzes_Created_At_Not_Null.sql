@@ -0,0 +1,8 @@
+-- Keyset-пагинация каталога сравнивает created_at, а строка с NULL не проходит ни одно сравнение
+-- и никогда не попадает на страницу. Дата создания таких викторин неизвестна: ставим самую раннюю
+-- из известных, чтобы они оказались в конце каталога
+UPDATE quizzes
+SET created_at = (SELECT COALESCE(min(created_at), CURRENT_TIMESTAMP) FROM quizzes)
+WHERE created_at IS NULL;
+
+ALTER TABLE quizzes ALTER COLUMN created_at SET NOT NULL;
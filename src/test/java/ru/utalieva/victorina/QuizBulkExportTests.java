@@ -0,0 +1,128 @@
+package ru.utalieva.victorina;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.utalieva.victorina.model.dto.OptionDTO;
+import ru.utalieva.victorina.model.dto.QuestionDTO;
+import ru.utalieva.victorina.model.dto.QuizCreateDTO;
+import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.repository.QuizBulkRepository;
+import ru.utalieva.victorina.repository.QuizRepository;
+import ru.utalieva.victorina.repository.UserRepository;
+import ru.utalieva.victorina.service.QuizService;
+import ru.utalieva.victorina.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Выгрузка отдаёт пользователю только публичные и его собственные викторины,
+ * а правильные ответы - только для его собственных.
+ */
+@SpringBootTest
+class QuizBulkExportTests {
+    private static final int CHUNK_SIZE = 2;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private QuizService quizService;
+    @Autowired
+    private QuizBulkRepository quizBulkRepository;
+    @Autowired
+    private QuizRepository quizRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+    private User other;
+    private final List<Long> quizIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = register("export-owner-");
+        other = register("export-other-");
+    }
+
+    @AfterEach
+    void tearDown() {
+        quizIds.forEach(quizRepository::deleteById);
+        userRepository.deleteById(owner.getId());
+        userRepository.deleteById(other.getId());
+    }
+
+    @Test
+    void exportsPublicAndOwnQuizzesAndHidesOthersAnswers() {
+        Long first = createQuiz(owner, "своя публичная", true);
+        createQuiz(owner, "своя закрытая", false);
+        createQuiz(other, "чужая публичная", true);
+        createQuiz(other, "чужая закрытая", false);
+        createQuiz(owner, "своя последняя", false);
+
+        List<QuizCreateDTO> exported = export(first - 1, owner.getId());
+
+        assertThat(exported).extracting(QuizCreateDTO::getTitle)
+                .containsExactly("своя публичная", "своя закрытая", "чужая публичная", "своя последняя");
+        for (QuizCreateDTO quiz : exported) {
+            boolean own = quiz.getTitle().startsWith("своя");
+            assertThat(quiz.getQuestions()).hasSize(2);
+            assertThat(quiz.getQuestions()).extracting(QuestionDTO::getCorrectIndex)
+                    .containsExactly(own ? 1 : null, own ? 1 : null);
+            assertThat(quiz.getTags()).containsExactly("export");
+        }
+    }
+
+    private List<QuizCreateDTO> export(long afterId, Long userId) {
+        long lastCreated = quizIds.get(quizIds.size() - 1);
+        List<QuizCreateDTO> exported = new ArrayList<>();
+        QuizBulkRepository.ExportChunk chunk;
+        long from = afterId;
+        do {
+            chunk = quizBulkRepository.findChunk(from, userId, CHUNK_SIZE);
+            exported.addAll(chunk.quizzes());
+            from = chunk.lastId();
+        } while (chunk.quizzes().size() == CHUNK_SIZE && from < lastCreated);
+        return exported;
+    }
+
+    private User register(String prefix) {
+        String username = prefix + UUID.randomUUID();
+        return userService.registerUser(username, "secret", username + "@example.com");
+    }
+
+    private Long createQuiz(User author, String title, boolean isPublic) {
+        QuizCreateDTO dto = new QuizCreateDTO();
+        dto.setTitle(title);
+        dto.setCategory("test");
+        dto.setDifficulty("EASY");
+        dto.setPublic(isPublic);
+        dto.setTags(List.of("export"));
+
+        List<QuestionDTO> questions = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            QuestionDTO question = new QuestionDTO();
+            question.setQuestion("Вопрос " + i);
+            question.setCorrectIndex(1);
+            List<OptionDTO> options = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                OptionDTO option = new OptionDTO();
+                option.setContent("Вариант " + j);
+                option.setType("TEXT");
+                options.add(option);
+            }
+            question.setOptions(options);
+            questions.add(question);
+        }
+        dto.setQuestions(questions);
+
+        Long quizId = quizService.createQuiz(dto, author.getUsername()).getId();
+        quizIds.add(quizId);
+        return quizId;
+    }
+}
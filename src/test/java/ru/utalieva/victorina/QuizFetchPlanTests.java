@@ -0,0 +1,187 @@
+package ru.utalieva.victorina;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.utalieva.victorina.model.dto.OptionDTO;
+import ru.utalieva.victorina.model.dto.QuestionDTO;
+import ru.utalieva.victorina.model.dto.QuizCreateDTO;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.entity.User;
+import ru.utalieva.victorina.repository.QuizAttemptRepository;
+import ru.utalieva.victorina.repository.QuizRepository;
+import ru.utalieva.victorina.repository.UserRepository;
+import ru.utalieva.victorina.security.UserPrincipal;
+import ru.utalieva.victorina.service.QuizService;
+import ru.utalieva.victorina.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет, что число SQL-запросов на эндпоинт не зависит от количества вопросов в викторине,
+ * а создание большой викторины укладывается в несколько пачечных запросов.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@AutoConfigureMockMvc
+class QuizFetchPlanTests {
+    private static final int SMALL_QUIZ = 3;
+    private static final int LARGE_QUIZ = 40;
+    private static final int MAX_DETAIL_QUERIES = 5;
+    private static final int BATCHED_QUIZ = 50;
+    private static final int MAX_CREATE_STATEMENTS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private QuizService quizService;
+    @Autowired
+    private QuizRepository quizRepository;
+    @Autowired
+    private QuizAttemptRepository quizAttemptRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private User author;
+    private final List<Long> quizIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String username = "fetch-plan-" + UUID.randomUUID();
+        author = userService.registerUser(username, "secret", username + "@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        quizAttemptRepository.deleteAll(quizAttemptRepository.findAll().stream()
+                .filter(attempt -> quizIds.contains(attempt.getQuiz().getId()))
+                .toList());
+        quizIds.forEach(quizRepository::deleteById);
+        userRepository.deleteById(author.getId());
+    }
+
+    @Test
+    void quizDetailUsesConstantNumberOfQueries() throws Exception {
+        Long small = createQuiz(SMALL_QUIZ);
+        Long large = createQuiz(LARGE_QUIZ);
+
+        long smallQueries = countQueries(get("/api/quizzes/" + small));
+        long largeQueries = countQueries(get("/api/quizzes/" + large));
+
+        assertThat(largeQueries).isEqualTo(smallQueries);
+        assertThat(largeQueries).isLessThanOrEqualTo(MAX_DETAIL_QUERIES);
+    }
+
+    @Test
+    void quizCreationIsBatched() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        createQuiz(BATCHED_QUIZ);
+
+        // 50 вопросов по 4 варианта и 4 результата - больше 250 строк; с IDENTITY каждая была отдельным INSERT,
+        // теперь строки уходят пачками по hibernate.jdbc.batch_size, а номера - одним nextval на 50 строк
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_CREATE_STATEMENTS);
+    }
+
+    @Test
+    void authorQuizzesUseConstantNumberOfQueries() throws Exception {
+        createQuiz(SMALL_QUIZ);
+        long oneQuiz = countQueries(get("/api/quizzes/my").with(user(new UserPrincipal(author))));
+        createQuiz(LARGE_QUIZ);
+        createQuiz(LARGE_QUIZ);
+        long threeQuizzes = countQueries(get("/api/quizzes/my").with(user(new UserPrincipal(author))));
+
+        assertThat(threeQuizzes).isEqualTo(oneQuiz);
+    }
+
+    @Test
+    void catalogIsSingleQuery() throws Exception {
+        createQuiz(SMALL_QUIZ);
+        createQuiz(LARGE_QUIZ);
+
+        assertThat(countQueries(get("/api/quizzes"))).isEqualTo(1);
+    }
+
+    @Test
+    void submissionUsesConstantNumberOfQueries() throws Exception {
+        assertThat(countSubmissionQueries(createQuiz(LARGE_QUIZ)))
+                .isEqualTo(countSubmissionQueries(createQuiz(SMALL_QUIZ)));
+    }
+
+    @Test
+    void attemptHistoryIsSingleQuery() throws Exception {
+        countSubmissionQueries(createQuiz(SMALL_QUIZ));
+        countSubmissionQueries(createQuiz(LARGE_QUIZ));
+
+        assertThat(countQueries(get("/api/quiz-attempts/my").with(user(new UserPrincipal(author))))).isEqualTo(1);
+    }
+
+    private long countSubmissionQueries(Long quizId) throws Exception {
+        UserPrincipal principal = new UserPrincipal(author);
+        mockMvc.perform(post("/api/quiz-attempts/start/" + quizId).with(user(principal)))
+                .andExpect(status().isOk());
+        return countQueries(post("/api/quiz-attempts/submit")
+                .with(user(principal))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"quizId\":" + quizId + ",\"answers\":{\"0\":1,\"1\":0},\"timeSpent\":30}"));
+    }
+
+    private long countQueries(RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long createQuiz(int questionCount) {
+        QuizCreateDTO dto = new QuizCreateDTO();
+        dto.setTitle("Fetch plan quiz");
+        dto.setCategory("test");
+        dto.setDifficulty("EASY");
+        dto.setPublic(true);
+        dto.setTags(List.of("a", "b"));
+
+        List<QuestionDTO> questions = new ArrayList<>();
+        for (int i = 0; i < questionCount; i++) {
+            QuestionDTO question = new QuestionDTO();
+            question.setQuestion("Question " + i);
+            question.setCorrectIndex(1);
+            List<OptionDTO> options = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                OptionDTO option = new OptionDTO();
+                option.setContent("Option " + j);
+                option.setType("TEXT");
+                options.add(option);
+            }
+            question.setOptions(options);
+            questions.add(question);
+        }
+        dto.setQuestions(questions);
+
+        Quiz quiz = quizService.createQuiz(dto, author.getUsername());
+        quizIds.add(quiz.getId());
+        return quiz.getId();
+    }
+}
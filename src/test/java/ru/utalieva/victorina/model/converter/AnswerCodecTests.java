@@ -0,0 +1,63 @@
+package ru.utalieva.victorina.model.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnswerCodecTests {
+
+    @Test
+    void roundTripsSparseAnswers() {
+        Map<Integer, Integer> answers = Map.of(0, 2, 3, 0, 7, 1);
+
+        byte[] packed = AnswerCodec.encode(answers);
+
+        assertThat(packed).containsExactly(3, 0, 0, 1, 0, 0, 0, 2);
+        assertThat(AnswerCodec.decode(packed)).isEqualTo(answers);
+    }
+
+    @Test
+    void roundTripsRandomAnswersUpToMaxOption() {
+        Random random = new Random(11);
+        for (int run = 0; run < 200; run++) {
+            Map<Integer, Integer> answers = new HashMap<>();
+            int questions = 1 + random.nextInt(300);
+            for (int q = 0; q < questions; q++) {
+                if (random.nextInt(4) != 0) {
+                    answers.put(q, random.nextInt(AnswerCodec.MAX_OPTION_INDEX + 1));
+                }
+            }
+            assertThat(AnswerCodec.decode(AnswerCodec.encode(answers))).isEqualTo(answers);
+        }
+        assertThat(AnswerCodec.decode(AnswerCodec.encode(Map.of(0, AnswerCodec.MAX_OPTION_INDEX))))
+                .containsEntry(0, AnswerCodec.MAX_OPTION_INDEX);
+    }
+
+    @Test
+    void nullAndEmptyAnswers() {
+        assertThat(AnswerCodec.encode(null)).isNull();
+        assertThat(AnswerCodec.decode(null)).isNull();
+        assertThat(AnswerCodec.encode(Map.of())).isEmpty();
+        assertThat(AnswerCodec.decode(new byte[0])).isEmpty();
+
+        Map<Integer, Integer> skipped = new HashMap<>();
+        skipped.put(0, 1);
+        skipped.put(2, null);
+        assertThat(AnswerCodec.decode(AnswerCodec.encode(skipped))).isEqualTo(Map.of(0, 1));
+    }
+
+    @Test
+    void rejectsValuesOutsideTheFormat() {
+        assertThatThrownBy(() -> AnswerCodec.encode(Map.of(-1, 0))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnswerCodec.encode(Map.of(AnswerCodec.MAX_QUESTIONS, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnswerCodec.encode(Map.of(0, -1))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnswerCodec.encode(Map.of(0, AnswerCodec.MAX_OPTION_INDEX + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
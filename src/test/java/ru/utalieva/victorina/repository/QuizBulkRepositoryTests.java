@@ -0,0 +1,57 @@
+package ru.utalieva.victorina.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Номера для импорта на свежей базе: последовательность только что создана, как quizzes_id_seq
+ * после V29, и её первый nextval равен 1.
+ */
+@SpringBootTest
+class QuizBulkRepositoryTests {
+    private static final String SEQUENCE = "bulk_fresh_test_seq";
+
+    @Autowired
+    private QuizBulkRepository quizBulkRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP SEQUENCE IF EXISTS " + SEQUENCE);
+        jdbcTemplate.execute("CREATE SEQUENCE " + SEQUENCE);
+        jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE + " INCREMENT BY 50");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SEQUENCE IF EXISTS " + SEQUENCE);
+    }
+
+    @Test
+    void freshSequenceGivesPositiveContiguousIds() {
+        long[] ids = quizBulkRepository.nextIds(SEQUENCE, 120);
+
+        assertThat(ids).containsExactly(LongStream.rangeClosed(1, 120).toArray());
+    }
+
+    @Test
+    void laterBlocksDoNotOverlapEarlierOnes() {
+        long[] first = quizBulkRepository.nextIds(SEQUENCE, 1);
+        long[] second = quizBulkRepository.nextIds(SEQUENCE, 60);
+        // Следующий блок, который взял бы Hibernate: верхняя граница - очередной nextval
+        Long hibernateBlockEnd = jdbcTemplate.queryForObject("SELECT nextval(?::regclass)", Long.class, SEQUENCE);
+
+        assertThat(first).containsExactly(1L);
+        assertThat(second).containsExactly(LongStream.rangeClosed(2, 61).toArray());
+        assertThat(hibernateBlockEnd - 50 + 1).isGreaterThan(second[second.length - 1]);
+    }
+}
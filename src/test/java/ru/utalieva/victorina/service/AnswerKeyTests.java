@@ -0,0 +1,121 @@
+package ru.utalieva.victorina.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerKeyTests {
+
+    @Test
+    void compilesTraitsIntoAlphabeticalMatrix() {
+        AnswerKey answerKey = AnswerKey.compile(TestQuizzes.personality(1,
+                List.of(
+                        List.of(Map.of("b", 2, "a", 1), Map.of("a", -1), Map.of()),
+                        List.of(Map.of("b", 3), Map.of("c", 4))),
+                List.of(Map.of("a", 1, "b", 5), Map.of("c", 5), Map.of("d", 1))));
+
+        // a, b, c из вариантов и d только из цели результата
+        assertThat(answerKey.getTraitCount()).isEqualTo(4);
+        int[] sums = new int[answerKey.getTraitCount()];
+        answerKey.addTraits(sums, 0, 0);
+        answerKey.addTraits(sums, 0, 2);
+        answerKey.addTraits(sums, 1, 0);
+        assertThat(sums).containsExactly(1, 5, 0, 0);
+        assertThat(answerKey.nearestResult(sums)).isZero();
+
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 1, 1, 1))).isEqualTo(1);
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 0, 1, 0))).isZero();
+    }
+
+    @Test
+    void nearestResultTieGoesToFirst() {
+        AnswerKey answerKey = AnswerKey.compile(TestQuizzes.personality(1,
+                List.of(List.of(Map.of("a", 1), Map.of("b", 1))),
+                List.of(Map.of("a", 1), Map.of("a", -1), Map.of("b", 1))));
+
+        assertThat(answerKey.nearestResult(new int[]{0, 0})).isZero();
+        assertThat(answerKey.nearestResult(new int[]{-1, 1})).isEqualTo(1);
+        assertThat(answerKey.nearestResult(new int[]{1, 1})).isZero();
+        // Без ответов все суммы нулевые: все три результата на расстоянии 1, выбирается первый
+        assertThat(answerKey.matchPersonalityResult(Map.of())).isZero();
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 1))).isEqualTo(2);
+
+        AnswerKey withoutResults = AnswerKey.compile(TestQuizzes.personality(2,
+                List.of(List.of(Map.of("a", 1))), List.of()));
+        assertThat(withoutResults.matchPersonalityResult(Map.of(0, 0))).isEqualTo(-1);
+    }
+
+    @Test
+    void resultIndexIsVoteForResult() {
+        AnswerKey answerKey = AnswerKey.compile(TestQuizzes.personality(1,
+                List.of(
+                        List.of(Map.of("resultIndex", 2), Map.of("resultIndex", 0)),
+                        List.of(Map.of("resultIndex", 2), Map.of("resultIndex", 1)),
+                        List.of(Map.of("resultIndex", 1), Map.of("resultIndex", 7))),
+                List.of(Map.of(), Map.of(), Map.of())));
+
+        // Ни одной именованной характеристики: по голосу на каждый результат
+        assertThat(answerKey.getTraitCount()).isEqualTo(3);
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 0, 1, 0, 2, 0))).isEqualTo(2);
+        // Голос за несуществующий результат 7 не считается, у 0 и 1 по голосу - выбирается первый
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 1, 1, 1, 2, 1))).isZero();
+        assertThat(answerKey.matchPersonalityResult(Map.of(1, 1, 2, 0))).isEqualTo(1);
+    }
+
+    @Test
+    void votesAndNamedTraitsAddUp() {
+        AnswerKey answerKey = AnswerKey.compile(TestQuizzes.personality(1,
+                List.of(
+                        List.of(Map.of("a", 3), Map.of("resultIndex", 0)),
+                        List.of(Map.of("a", 3), Map.of("resultIndex", 0))),
+                List.of(Map.of(), Map.of("a", 6))));
+
+        assertThat(answerKey.getTraitCount()).isEqualTo(3);
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 0, 1, 0))).isEqualTo(1);
+        assertThat(answerKey.matchPersonalityResult(Map.of(0, 1, 1, 1))).isZero();
+    }
+
+    @Test
+    void matchIgnoresInvalidAnswersAndAgreesWithTally() {
+        AnswerKey wide = AnswerKey.compile(TestQuizzes.personality(1,
+                List.of(List.of(Map.of("a", 5, "b", 5, "c", 5, "d", 5), Map.of("a", -5))),
+                List.of(Map.of("a", -5), Map.of("a", 5, "b", 5, "c", 5, "d", 5))));
+        AnswerKey narrow = AnswerKey.compile(TestQuizzes.personality(2,
+                List.of(List.of(Map.of("a", 1), Map.of("a", -1))),
+                List.of(Map.of("a", -1), Map.of("a", 1))));
+
+        Map<Integer, Integer> answers = new HashMap<>();
+        answers.put(0, 0);
+        answers.put(1, 0);
+        answers.put(5, null);
+        // Вызов для широкого ключа не влияет на узкий и на повторный вызов
+        assertThat(wide.matchPersonalityResult(answers)).isEqualTo(1);
+        assertThat(narrow.matchPersonalityResult(Map.of(0, 1))).isZero();
+        assertThat(narrow.matchPersonalityResult(Map.of(0, 7))).isZero();
+        assertThat(wide.matchPersonalityResult(Map.of(0, 1))).isZero();
+        assertThat(wide.matchPersonalityResult(answers)).isEqualTo(1);
+
+        AnswerTally tally = wide.newTally();
+        tally.add(0, 0);
+        assertThat(tally.personalityResult()).isEqualTo(wide.matchPersonalityResult(Map.of(0, 0)));
+    }
+
+    @Test
+    void scoreCountsOnlyValidCorrectAnswers() {
+        AnswerKey answerKey = AnswerKey.compile(TestQuizzes.standard(1, 4, 3));
+        Map<Integer, Integer> answers = new HashMap<>();
+        answers.put(0, 0);
+        answers.put(1, 1);
+        answers.put(2, 0);
+        answers.put(3, null);
+        answers.put(9, 0);
+        answers.put(-1, 0);
+
+        assertThat(answerKey.score(answers)).isEqualTo(2);
+        assertThat(answerKey.score(Map.of())).isZero();
+    }
+}
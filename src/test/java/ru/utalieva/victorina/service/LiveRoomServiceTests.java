@@ -0,0 +1,224 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.utalieva.victorina.model.dto.AnswerResultDTO;
+import ru.utalieva.victorina.model.dto.LiveRoomDTO;
+import ru.utalieva.victorina.model.enumination.LiveRoomState;
+import ru.utalieva.victorina.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LiveRoomServiceTests {
+    private static final long QUIZ_ID = 1L;
+    private static final long PRESENTER = 100L;
+
+    private final AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+    private final QuizAttemptService quizAttemptService = mock(QuizAttemptService.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AtomicLong attemptIds = new AtomicLong();
+    private final ThreadPoolTaskExecutor sender = new ThreadPoolTaskExecutor();
+    private LiveRoomService service;
+
+    @BeforeEach
+    void setUp() {
+        sender.setCorePoolSize(4);
+        sender.initialize();
+        when(answerKeyCache.get(QUIZ_ID)).thenReturn(AnswerKey.compile(TestQuizzes.standard(QUIZ_ID, 3, 4)));
+        when(quizAttemptService.startLiveAttempt(any(), any())).thenAnswer(invocation -> AttemptSession.start(
+                attemptIds.incrementAndGet(), invocation.getArgument(0), invocation.getArgument(1), Instant.now(),
+                Duration.ofSeconds(10), Duration.ofHours(1)));
+        service = new LiveRoomService(answerKeyCache, quizAttemptService, userRepository,
+                new ObjectMapper().registerModule(new JavaTimeModule()), sender, Duration.ofMinutes(5),
+                Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdown();
+    }
+
+    @Test
+    void joinStartsOneAttemptPerParticipantAndSkipsPresenter() {
+        String code = service.createRoom(QUIZ_ID, PRESENTER).getCode();
+
+        service.subscribe(code, PRESENTER);
+        service.subscribe(code, 1L);
+        service.subscribe(code, 1L);
+        service.subscribe(code, 2L);
+
+        assertThat(service.getRoom(code).getParticipantCount()).isEqualTo(2);
+        verify(quizAttemptService, times(1)).startLiveAttempt(eq(1L), any());
+        verify(quizAttemptService, times(1)).startLiveAttempt(eq(2L), any());
+        verify(quizAttemptService, never()).startLiveAttempt(eq(PRESENTER), any());
+    }
+
+    @Test
+    void answerScoresOnlyTheCurrentQuestion() {
+        String code = service.createRoom(QUIZ_ID, PRESENTER).getCode();
+        service.subscribe(code, 1L);
+        service.nextQuestion(code, PRESENTER);
+
+        AnswerResultDTO correct = service.answer(code, 1L, 0, 0);
+        assertThat(correct.getCorrect()).isTrue();
+        assertThat(correct.getScore()).isEqualTo(1);
+        assertThat(correct.getAnsweredCount()).isEqualTo(1);
+
+        assertThatThrownBy(() -> service.answer(code, 1L, 1, 1)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.answer(code, 2L, 0, 0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.answer(code, 1L, 0, 9)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.nextQuestion(code, 1L)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void duplicateAnswerIsRejectedAndNotCounted() {
+        String code = service.createRoom(QUIZ_ID, PRESENTER).getCode();
+        service.subscribe(code, 1L);
+        service.nextQuestion(code, PRESENTER);
+        service.answer(code, 1L, 0, 1);
+
+        assertThatThrownBy(() -> service.answer(code, 1L, 0, 0)).isInstanceOf(IllegalStateException.class);
+
+        service.nextQuestion(code, PRESENTER);
+        AnswerResultDTO next = service.answer(code, 1L, 1, 1);
+        assertThat(next.getAnsweredCount()).isEqualTo(2);
+        assertThat(next.getScore()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void closeSavesOnlyParticipantsWhoAnswered() throws Exception {
+        String code = service.createRoom(QUIZ_ID, PRESENTER).getCode();
+        SseEmitter emitter = service.subscribe(code, 1L);
+        service.subscribe(code, 2L);
+        service.nextQuestion(code, PRESENTER);
+        service.answer(code, 1L, 0, 0);
+
+        LiveRoomDTO finished = service.finish(code, PRESENTER);
+
+        ArgumentCaptor<List<AttemptSession>> saved = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Instant> startedAt = ArgumentCaptor.forClass(Instant.class);
+        verify(quizAttemptService, timeout(5_000)).completeLiveAttempts(saved.capture(), any(), startedAt.capture(),
+                any());
+        assertThat(saved.getValue()).extracting(AttemptSession::getUserId).containsExactly(1L);
+        assertThat(startedAt.getValue()).isNotNull();
+        assertThat(finished.getCode()).isEqualTo(code);
+        awaitCompleted(emitter);
+        assertThatThrownBy(() -> service.getRoom(code)).hasMessageContaining("not found");
+    }
+
+    @Test
+    void closeCompletesSubscribersWhenSavingFails() throws Exception {
+        doThrow(new IllegalStateException("база недоступна"))
+                .when(quizAttemptService).completeLiveAttempts(anyList(), any(), any(), any());
+        String code = service.createRoom(QUIZ_ID, PRESENTER).getCode();
+        SseEmitter participant = service.subscribe(code, 1L);
+        SseEmitter presenter = service.subscribe(code, PRESENTER);
+        service.nextQuestion(code, PRESENTER);
+        service.answer(code, 1L, 0, 0);
+
+        service.finish(code, PRESENTER);
+
+        awaitCompleted(participant);
+        awaitCompleted(presenter);
+    }
+
+    @Test
+    void closeWithoutAnswersSavesNothing() throws Exception {
+        String code = service.createRoom(QUIZ_ID, PRESENTER).getCode();
+        SseEmitter emitter = service.subscribe(code, 1L);
+
+        service.finish(code, PRESENTER);
+
+        awaitCompleted(emitter);
+        verify(quizAttemptService, never()).completeLiveAttempts(anyList(), any(), any(), any());
+    }
+
+    @Test
+    void finishClosesRoomForAnswersAndSnapshotsWhoAnswered() {
+        LiveRoom room = new LiveRoom("ROOM01", PRESENTER, answerKeyCache.get(QUIZ_ID));
+        AttemptSession first = quizAttemptService.startLiveAttempt(1L, room.getAnswerKey());
+        AttemptSession second = quizAttemptService.startLiveAttempt(2L, room.getAnswerKey());
+        room.getParticipants().put(1L, first);
+        room.getParticipants().put(2L, second);
+        room.nextQuestion();
+        room.answer(first, 0, 0);
+
+        List<AttemptSession> answered = room.finish();
+
+        assertThat(answered).containsExactly(first);
+        assertThat(room.getState()).isEqualTo(LiveRoomState.FINISHED);
+        assertThatThrownBy(() -> room.answer(second, 0, 0)).isInstanceOf(IllegalStateException.class);
+        assertThat(second.getAnsweredCount()).isZero();
+        assertThat(room.nextQuestion()).isFalse();
+    }
+
+    @Test
+    void roomEventsRunInOrderOneAtATime() throws Exception {
+        LiveRoom room = new LiveRoom("ROOM02", PRESENTER, answerKeyCache.get(QUIZ_ID));
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong running = new AtomicLong();
+        AtomicLong overlaps = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+        int events = 500;
+
+        for (int i = 0; i < events; i++) {
+            int event = i;
+            room.enqueue(() -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                delivered.add(event);
+                running.decrementAndGet();
+                if (event == events - 1) {
+                    done.countDown();
+                }
+            }, sender);
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlaps.get()).isZero();
+        assertThat(delivered).containsExactlyElementsOf(IntStream.range(0, events).boxed().toList());
+    }
+
+    /** Завершённый эмиттер отказывается отправлять события; итоги рассылаются в отдельном потоке. */
+    private static void awaitCompleted(SseEmitter emitter) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                emitter.send("ping");
+            } catch (IllegalStateException e) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("SSE-подписка не закрыта");
+    }
+}
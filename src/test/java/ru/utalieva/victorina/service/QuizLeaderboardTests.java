@@ -0,0 +1,69 @@
+package ru.utalieva.victorina.service;
+
+import org.junit.jupiter.api.Test;
+import ru.utalieva.victorina.model.dto.AttemptScore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuizLeaderboardTests {
+
+    @Test
+    void ordersByScoreThenTime() {
+        QuizLeaderboard leaderboard = new QuizLeaderboard();
+        leaderboard.offer(new AttemptScore(1L, 1L, 5, 60));
+        leaderboard.offer(new AttemptScore(2L, 2L, 8, 90));
+        leaderboard.offer(new AttemptScore(3L, 3L, 8, 30));
+
+        assertThat(leaderboard.top(10)).extracting(AttemptScore::userId).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void equalScoreAndTimeAreOrderedByAttemptId() {
+        QuizLeaderboard leaderboard = new QuizLeaderboard();
+        leaderboard.offer(new AttemptScore(20L, 1L, 7, 45));
+        leaderboard.offer(new AttemptScore(10L, 2L, 7, 45));
+
+        assertThat(leaderboard.size()).isEqualTo(2);
+        assertThat(leaderboard.top(10)).extracting(AttemptScore::userId).containsExactly(2L, 1L);
+        assertThat(leaderboard.positionOf(new AttemptScore(15L, 3L, 7, 45))).isEqualTo(2);
+    }
+
+    @Test
+    void keepsOnlyBestAttemptPerUser() {
+        QuizLeaderboard leaderboard = new QuizLeaderboard();
+        leaderboard.offer(new AttemptScore(1L, 1L, 5, 60));
+        leaderboard.offer(new AttemptScore(2L, 1L, 3, 10));
+        assertThat(leaderboard.top(10)).extracting(AttemptScore::attemptId).containsExactly(1L);
+
+        leaderboard.offer(new AttemptScore(3L, 1L, 9, 80));
+        assertThat(leaderboard.size()).isEqualTo(1);
+        assertThat(leaderboard.top(10)).extracting(AttemptScore::attemptId).containsExactly(3L);
+    }
+
+    @Test
+    void positionIgnoresUsersOwnPreviousBest() {
+        QuizLeaderboard leaderboard = new QuizLeaderboard();
+        leaderboard.offer(new AttemptScore(1L, 1L, 10, 30));
+        leaderboard.offer(new AttemptScore(2L, 2L, 6, 30));
+        leaderboard.offer(new AttemptScore(3L, 3L, 4, 30));
+
+        // Второй пользователь с худшей попыткой: впереди только первый пользователь
+        assertThat(leaderboard.positionOf(new AttemptScore(4L, 2L, 5, 30))).isEqualTo(2);
+        // Первый пользователь хуже своей прежней попытки остаётся первым
+        assertThat(leaderboard.positionOf(new AttemptScore(5L, 1L, 8, 30))).isEqualTo(1);
+        // Новый пользователь с тем же результатом встаёт после всех, у кого меньше время или id
+        assertThat(leaderboard.positionOf(new AttemptScore(6L, 4L, 6, 30))).isEqualTo(3);
+    }
+
+    @Test
+    void positionOfAlreadyRecordedBestIsItsRank() {
+        QuizLeaderboard leaderboard = new QuizLeaderboard();
+        AttemptScore first = new AttemptScore(1L, 1L, 10, 30);
+        AttemptScore second = new AttemptScore(2L, 2L, 6, 30);
+        leaderboard.offer(first);
+        leaderboard.offer(second);
+
+        assertThat(leaderboard.positionOf(first)).isEqualTo(1);
+        assertThat(leaderboard.positionOf(second)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,255 @@
+package ru.utalieva.victorina.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.utalieva.victorina.repository.QuizSearchRepository;
+import ru.utalieva.victorina.repository.QuizSearchRepository.Document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Таблица quizzes заменена картой документов, а разбор запроса в базе - разбиением по пробелам
+ * с отбрасыванием стоп-слов.
+ */
+class QuizSearchIndexTests {
+    private static final List<String> STOP_WORDS = List.of("и", "в");
+
+    private final QuizSearchRepository repository = mock(QuizSearchRepository.class);
+    private final Map<Long, Document> table = new TreeMap<>();
+    private QuizSearchIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            new ArrayList<>(table.values()).forEach((Consumer<Document>) invocation.getArgument(0));
+            return null;
+        }).when(repository).forEachDocument(any());
+        when(repository.findDocuments(anyCollection())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).stream()
+                        .filter(table::containsKey)
+                        .sorted()
+                        .map(table::get)
+                        .toList());
+        when(repository.analyze(anyString())).thenAnswer(invocation ->
+                List.of(invocation.<String>getArgument(0).split("\\s+")).stream()
+                        .filter(word -> !STOP_WORDS.contains(word.toLowerCase(Locale.ROOT)))
+                        .toList());
+        index = new QuizSearchIndex(repository, 100);
+    }
+
+    @Test
+    void lexemesDifferingInCaseAreOneTerm() {
+        put(doc(1, "история", "easy", 1, List.of(), "Москва МОСКВА", ""));
+        put(doc(2, "история", "easy", 2, List.of(), "Москва", ""));
+
+        QuizSearchIndex.Result result = index.search("москва", null, null, null, 10);
+
+        // Два вхождения в названии весят вдвое больше одного
+        assertThat(result.hits()).extracting(QuizSearchIndex.Hit::quizId).containsExactly(1L, 2L);
+        assertThat(result.hits().get(0).score()).isEqualTo(2 * result.hits().get(1).score());
+        assertThat(index.search("МОСКВА", null, null, null, 10).total()).isEqualTo(2);
+    }
+
+    @Test
+    void stopWordsOnlyFindNothingAndBlankFindsAll() {
+        put(doc(1, "история", "easy", 1, List.of(), "Москва", ""));
+        put(doc(2, "наука", "hard", 2, List.of(), "Физика", ""));
+
+        assertThat(index.search("и в", null, null, null, 10).total()).isZero();
+        assertThat(index.search("  ", null, null, null, 10).total()).isEqualTo(2);
+        assertThat(index.search(null, null, null, null, 10).total()).isEqualTo(2);
+    }
+
+    @Test
+    void analyzedQueriesAreCached() {
+        put(doc(1, "история", "easy", 1, List.of(), "Москва", ""));
+
+        index.search("москва", null, null, null, 10);
+        index.search(" москва ", null, null, null, 10);
+
+        verify(repository, times(1)).analyze("москва");
+    }
+
+    @Test
+    void allTermsMustMatchAndTitleOutranksDescription() {
+        put(doc(1, "история", "easy", 1, List.of(), "Война", "мир"));
+        put(doc(2, "история", "easy", 2, List.of(), "Мир", "война"));
+        put(doc(3, "история", "easy", 3, List.of(), "Мир", ""));
+        put(doc(4, "история", "easy", 4, List.of(), "Война мир", ""));
+
+        QuizSearchIndex.Result result = index.search("война мир", null, null, null, 10);
+
+        assertThat(result.total()).isEqualTo(3);
+        // Оба слова в названии; затем одинаковый вес у 1 и 2 - выше более новая викторина
+        assertThat(result.hits()).extracting(QuizSearchIndex.Hit::quizId).containsExactly(4L, 2L, 1L);
+    }
+
+    @Test
+    void withoutTextNewestComeFirstAndLimitKeepsTotal() {
+        for (long id = 1; id <= 20; id++) {
+            // Время создания не совпадает с порядком загрузки
+            put(doc(id, "история", "easy", (id * 7) % 20, List.of(), "Тест", ""));
+        }
+
+        QuizSearchIndex.Result result = index.search(null, null, null, null, 3);
+
+        assertThat(result.total()).isEqualTo(20);
+        assertThat(result.hits()).extracting(QuizSearchIndex.Hit::createdAt).containsExactly(19L, 18L, 17L);
+    }
+
+    @Test
+    void filtersAndFacetsWithAndWithoutText() {
+        put(doc(1, "история", "easy", 1, List.of("россия", "war"), "Война", ""));
+        put(doc(2, "история", "hard", 2, List.of("россия"), "Мир", ""));
+        put(doc(3, "наука", "hard", 3, List.of("физика"), "Война", ""));
+        put(doc(4, null, "easy", 4, List.of(), "Война", ""));
+
+        QuizSearchIndex.Result all = index.search(null, null, null, null, 10);
+        // Викторина без категории находится, но в фасет категории не попадает
+        assertThat(all.total()).isEqualTo(4);
+        assertThat(all.facets().get("category")).isEqualTo(Map.of("история", 2L, "наука", 1L));
+        assertThat(index.search(null, "null", null, null, 10).total()).isZero();
+        assertThat(all.facets().get("tag")).isEqualTo(Map.of("россия", 2L, "war", 1L, "физика", 1L));
+
+        QuizSearchIndex.Result hard = index.search(null, null, "hard", null, 10);
+        assertThat(hard.hits()).extracting(QuizSearchIndex.Hit::quizId).containsExactly(3L, 2L);
+        assertThat(hard.facets().get("category")).isEqualTo(Map.of("история", 1L, "наука", 1L));
+        assertThat(hard.facets().get("difficulty")).isEqualTo(Map.of("hard", 2L));
+
+        QuizSearchIndex.Result combined = index.search(null, "история", "hard", "россия", 10);
+        assertThat(combined.hits()).extracting(QuizSearchIndex.Hit::quizId).containsExactly(2L);
+
+        QuizSearchIndex.Result war = index.search("война", null, null, "россия", 10);
+        assertThat(war.hits()).extracting(QuizSearchIndex.Hit::quizId).containsExactly(1L);
+        assertThat(war.facets().get("tag")).isEqualTo(Map.of("россия", 1L, "war", 1L));
+
+        assertThat(index.search("война", null, null, null, 10).facets().get("difficulty"))
+                .isEqualTo(Map.of("easy", 2L, "hard", 1L));
+        assertThat(index.search(null, "нет такой", null, null, 10).total()).isZero();
+    }
+
+    @Test
+    void deleteAndUpdateAreVisibleAfterEvents() {
+        put(doc(1, "история", "easy", 1, List.of("россия"), "Война", ""));
+        put(doc(2, "история", "easy", 2, List.of(), "Мир", ""));
+        index.afterSingletonsInstantiated();
+
+        table.remove(1L);
+        index.onQuizChanged(new QuizChangedEvent(1L));
+        assertThat(index.search("война", null, null, null, 10).total()).isZero();
+        assertThat(index.search(null, null, null, null, 10).facets().get("tag")).isEmpty();
+
+        put(doc(2, "наука", "hard", 2, List.of(), "Физика", ""));
+        index.onQuizChanged(new QuizChangedEvent(2L));
+        assertThat(index.search("мир", null, null, null, 10).total()).isZero();
+        assertThat(index.search("физика", "наука", null, null, 10).hits())
+                .extracting(QuizSearchIndex.Hit::quizId).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(1);
+
+        put(doc(3, "наука", "easy", 3, List.of(), "Физика", ""));
+        put(doc(4, "наука", "easy", 4, List.of(), "Химия", ""));
+        index.onQuizzesImported(new QuizzesImportedEvent(List.of(3L, 4L)));
+        assertThat(index.search("физика", null, null, null, 10).hits())
+                .extracting(QuizSearchIndex.Hit::quizId).containsExactly(3L, 2L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void changesBeforeLoadAreReplayedAfterIt() {
+        put(doc(1, "история", "easy", 1, List.of(), "Война", ""));
+        put(doc(2, "история", "easy", 2, List.of(), "Мир", ""));
+        // События пришли, пока индекс не загружен; загрузка затем читает уже устаревшее состояние
+        index.onQuizChanged(new QuizChangedEvent(1L));
+        index.onQuizzesImported(new QuizzesImportedEvent(List.of(3L)));
+        Document stale = table.remove(1L);
+        put(doc(3, "наука", "easy", 3, List.of(), "Физика", ""));
+        doAnswer(invocation -> {
+            Consumer<Document> consumer = invocation.getArgument(0);
+            consumer.accept(stale);
+            consumer.accept(table.get(2L));
+            return null;
+        }).when(repository).forEachDocument(any());
+
+        index.afterSingletonsInstantiated();
+
+        assertThat(index.search("война", null, null, null, 10).total()).isZero();
+        assertThat(index.search("физика", null, null, null, 10).total()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void compactionKeepsResultsAndOrder() {
+        for (long id = 1; id <= 400; id++) {
+            put(doc(id, id % 2 == 0 ? "чёт" : "нечет", "easy", id, List.of("t" + id % 3), "Общее",
+                    id % 10 == 0 ? "редкое" : ""));
+        }
+        index.afterSingletonsInstantiated();
+
+        // Удаляем больше четверти документов, а часть перезаписываем: срабатывает сжатие
+        List<Long> changed = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            if (id % 3 == 0) {
+                put(doc(id, "чёт", "hard", id, List.of("t" + id % 3), "Общее", "новое"));
+            } else {
+                table.remove(id);
+            }
+            changed.add(id);
+        }
+        index.onQuizzesImported(new QuizzesImportedEvent(changed));
+
+        Map<Long, Document> expected = new LinkedHashMap<>(table);
+        assertThat(index.size()).isEqualTo(expected.size());
+        assertThat(index.search("общее", null, null, null, 1_000).total()).isEqualTo(expected.size());
+        assertThat(index.search("новое", null, "hard", null, 1_000).total()).isEqualTo(100);
+        assertThat(index.search("редкое", null, null, null, 1_000).hits())
+                .extracting(QuizSearchIndex.Hit::quizId)
+                .containsExactly(400L, 390L, 380L, 370L, 360L, 350L, 340L, 330L, 320L, 310L);
+        assertThat(index.search(null, null, null, null, 1_000).facets().get("category"))
+                .isEqualTo(Map.of("чёт", 150L, "нечет", 50L));
+
+        put(doc(500, "чёт", "easy", 500, List.of(), "Общее редкое", ""));
+        index.onQuizChanged(new QuizChangedEvent(500L));
+        assertThat(index.search("редкое", null, null, null, 1).hits())
+                .extracting(QuizSearchIndex.Hit::quizId).containsExactly(500L);
+    }
+
+    private void put(Document document) {
+        table.put(document.quizId(), document);
+    }
+
+    /** Документ как из search_vector: слова названия с весом A, описания - B, встреченные в обоих - AB. */
+    private static Document doc(long id, String category, String difficulty, long createdAt, List<String> tags,
+                                String title, String description) {
+        Map<String, StringBuilder> weights = new LinkedHashMap<>();
+        for (String word : title.split("\\s+")) {
+            if (!word.isEmpty()) {
+                weights.computeIfAbsent(word, w -> new StringBuilder()).append('A');
+            }
+        }
+        for (String word : description.split("\\s+")) {
+            if (!word.isEmpty()) {
+                weights.computeIfAbsent(word, w -> new StringBuilder()).append('B');
+            }
+        }
+        return new Document(id, category, difficulty, createdAt, tags, List.copyOf(weights.keySet()),
+                weights.values().stream().map(StringBuilder::toString).toList());
+    }
+}
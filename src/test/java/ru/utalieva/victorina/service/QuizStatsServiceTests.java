@@ -0,0 +1,256 @@
+package ru.utalieva.victorina.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.utalieva.victorina.exception.ResourceNotFoundException;
+import ru.utalieva.victorina.model.converter.AnswerCodec;
+import ru.utalieva.victorina.model.dto.QuestionStatsDTO;
+import ru.utalieva.victorina.model.dto.QuizStatsDTO;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
+import ru.utalieva.victorina.repository.QuizAttemptPartitionRepository;
+import ru.utalieva.victorina.repository.QuizRepository;
+import ru.utalieva.victorina.repository.QuizStatsRepository;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сводные таблицы заменены картой в памяти, которая складывает приращения так же, как upsert
+ * в {@link QuizStatsRepository}: так проверяются подсчёт приращений, средние и медиана по гистограмме.
+ */
+class QuizStatsServiceTests {
+    private static final long QUIZ_ID = 7L;
+    private static final long AUTHOR_ID = 1L;
+    private static final int QUESTIONS = 4;
+    private static final String PARTITION = "quiz_attempts_p202401";
+
+    private final QuizStatsRepository quizStatsRepository = mock(QuizStatsRepository.class);
+    private final QuizRepository quizRepository = mock(QuizRepository.class);
+    private final QuizAttemptPartitionRepository partitionRepository = mock(QuizAttemptPartitionRepository.class);
+    private final AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+    private final Map<Long, QuizStatsDelta> tables = new HashMap<>();
+    private final Map<Long, QuizStatsDelta> archivedTables = new HashMap<>();
+    private final List<ScoredSubmission> history = new ArrayList<>();
+    private final List<ScoredSubmission> partition = new ArrayList<>();
+    private QuizStatsService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        when(answerKeyCache.get(QUIZ_ID)).thenReturn(AnswerKey.compile(TestQuizzes.standard(QUIZ_ID, QUESTIONS, 3)));
+        when(quizRepository.findAuthorIdById(QUIZ_ID)).thenReturn(Optional.of(AUTHOR_ID));
+        doAnswer(invocation -> {
+            ((List<QuizStatsDelta>) invocation.getArgument(0)).forEach(this::upsert);
+            return null;
+        }).when(quizStatsRepository).apply(anyList());
+        doAnswer(invocation -> {
+            QuizStatsDelta stats = invocation.getArgument(0);
+            tables.remove(stats.getQuizId());
+            upsert(stats);
+            return null;
+        }).when(quizStatsRepository).replace(any());
+        when(quizStatsRepository.find(anyLong(), anyInt()))
+                .thenAnswer(invocation -> copy(tables, invocation.getArgument(0), invocation.getArgument(1)));
+        doAnswer(invocation -> {
+            ((List<QuizStatsDelta>) invocation.getArgument(0)).forEach(delta -> upsert(archivedTables, delta));
+            return null;
+        }).when(quizStatsRepository).applyArchived(anyList());
+        when(quizStatsRepository.findArchived(anyLong(), anyInt()))
+                .thenAnswer(invocation -> copy(archivedTables, invocation.getArgument(0), invocation.getArgument(1)));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ScoredSubmission submission : history) {
+                handler.processRow(row(submission));
+            }
+            return null;
+        }).when(quizStatsRepository).forEachAttempt(eq(QUIZ_ID), any());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ScoredSubmission submission : partition) {
+                handler.processRow(partitionRow(submission));
+            }
+            return null;
+        }).when(partitionRepository).forEachCompletedAttempt(eq(PARTITION), any());
+
+        service = new QuizStatsService(quizStatsRepository, quizRepository, partitionRepository, answerKeyCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), false);
+    }
+
+    @Test
+    void timeBucketUpperBoundIsExclusive() {
+        assertThat(QuizStatsDelta.timeBucketOf(0)).isZero();
+        assertThat(QuizStatsDelta.timeBucketOf(4)).isZero();
+        assertThat(QuizStatsDelta.timeBucketOf(5)).isEqualTo(1);
+        assertThat(QuizStatsDelta.timeBucketOf(3599)).isEqualTo(QuizStatsDelta.TIME_BUCKET_BOUNDS.length - 1);
+        assertThat(QuizStatsDelta.timeBucketOf(3600)).isEqualTo(QuizStatsDelta.TIME_BUCKET_BOUNDS.length);
+        assertThat(QuizStatsDelta.timeBucketOf(100_000)).isEqualTo(QuizStatsDelta.TIME_BUCKET_BOUNDS.length);
+    }
+
+    @Test
+    void batchesAccumulateAveragesAndMedian() {
+        // Верные варианты: 0, 1, 2, 0
+        record(submission(1L, 12, false, Map.of(0, 0, 1, 1, 2, 2, 3, 0)));
+        record(submission(2L, 25, false, Map.of(0, 0, 1, 0)),
+                submission(3L, 40, false, Map.of(0, 1, 3, 0)),
+                submission(4L, 90, true, Map.of(2, 2)));
+
+        QuizStatsDTO stats = service.getStats(QUIZ_ID);
+
+        assertThat(stats.getSubmitted()).isEqualTo(3);
+        assertThat(stats.getExpired()).isEqualTo(1);
+        assertThat(stats.getCompletionRate()).isCloseTo(0.75, within(1e-9));
+        assertThat(stats.getAverageScore()).isCloseTo((4 + 1 + 1) / 3.0, within(1e-9));
+        assertThat(stats.getAverageScorePercent()).isCloseTo(100.0 * 6 / 12, within(1e-9));
+        assertThat(stats.getAverageTimeSpent()).isCloseTo((12 + 25 + 40) / 3.0, within(1e-9));
+        // 12 в [10, 15), 25 в [20, 30), 40 в [30, 45): медиана - середина корзины [20, 30)
+        assertThat(stats.getMedianTimeSpent()).isEqualTo(25);
+        assertThat(stats.getQuestions()).extracting(QuestionStatsDTO::getAnswered).containsExactly(3L, 2L, 2L, 2L);
+        assertThat(stats.getQuestions()).extracting(QuestionStatsDTO::getCorrect).containsExactly(2L, 1L, 2L, 2L);
+    }
+
+    @Test
+    void medianInterpolatesInsideBucketAndStopsAtLastBound() {
+        record(submission(1L, 20, false, Map.of()), submission(2L, 20, false, Map.of()),
+                submission(3L, 20, false, Map.of()), submission(4L, 20, false, Map.of()));
+        // Все четыре попытки в [20, 30): половина - два из четырёх, то есть середина корзины
+        assertThat(service.getStats(QUIZ_ID).getMedianTimeSpent()).isEqualTo(25);
+
+        record(submission(5L, 5_000, false, Map.of()), submission(6L, 7_000, false, Map.of()),
+                submission(7L, 9_000, false, Map.of()), submission(8L, 9_500, false, Map.of()),
+                submission(9L, 9_900, false, Map.of()));
+        // Больше половины попыток дольше последней границы: у последней корзины верхней границы нет
+        assertThat(service.getStats(QUIZ_ID).getMedianTimeSpent()).isEqualTo(3600);
+    }
+
+    @Test
+    void invalidAnswersAreNotCounted() {
+        record(submission(1L, 10, false, Map.of(0, 0, 1, 7, 9, 0)));
+
+        QuizStatsDTO stats = service.getStats(QUIZ_ID);
+
+        assertThat(stats.getQuestions()).extracting(QuestionStatsDTO::getAnswered).containsExactly(1L, 0L, 0L, 0L);
+        assertThat(stats.getQuestions().get(1).getCorrectRate()).isNull();
+    }
+
+    @Test
+    void rebuildFromHistoryMatchesIncrementalStats() {
+        record(submission(1L, 12, false, Map.of(0, 0, 1, 1, 2, 2, 3, 0)),
+                submission(2L, 300, false, Map.of(0, 2, 3, 0)));
+        record(submission(3L, 61, false, Map.of(1, 1)), submission(4L, 0, true, Map.of()));
+        record(submission(5L, 4_000, false, Map.of(0, 0, 1, 2, 2, 2)));
+        QuizStatsDTO incremental = service.getStats(QUIZ_ID);
+
+        // Искажаем сводные таблицы: пересчёт должен заменить их целиком, а не прибавить
+        QuizStatsDelta drift = new QuizStatsDelta(QUIZ_ID, QUESTIONS);
+        drift.addAttempt(false, 3, QUESTIONS, 1);
+        drift.addAnswer(0, true);
+        upsert(drift);
+        assertThat(service.getStats(QUIZ_ID)).usingRecursiveComparison().isNotEqualTo(incremental);
+
+        service.rebuild(QUIZ_ID, AUTHOR_ID);
+
+        assertThat(service.getStats(QUIZ_ID)).usingRecursiveComparison().isEqualTo(incremental);
+        assertThatThrownBy(() -> service.rebuild(QUIZ_ID, AUTHOR_ID + 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rebuildKeepsAttemptsFromArchivedPartitions() {
+        ScoredSubmission old = submission(1L, 12, false, Map.of(0, 0, 1, 1, 2, 2, 3, 0));
+        ScoredSubmission oldExpired = submission(2L, 0, true, Map.of(1, 1));
+        ScoredSubmission unknownQuiz = new ScoredSubmission(3L, 103L, 404L, 1, QUESTIONS, 10, null, null,
+                Map.of(0, 0), null, false, true);
+        record(old, oldExpired);
+        record(submission(4L, 61, false, Map.of(0, 2, 3, 0)));
+        QuizStatsDTO incremental = service.getStats(QUIZ_ID);
+        when(answerKeyCache.get(404L)).thenThrow(new ResourceNotFoundException("Quiz not found"));
+
+        // Архивация секции: доля её попыток откладывается, а сами попытки пропадают из quiz_attempts
+        partition.addAll(List.of(old, oldExpired, unknownQuiz));
+        service.archive(service.collectPartition(PARTITION));
+        history.removeAll(partition);
+        service.rebuild(QUIZ_ID, AUTHOR_ID);
+
+        assertThat(service.getStats(QUIZ_ID)).usingRecursiveComparison().isEqualTo(incremental);
+        assertThat(archivedTables).containsOnlyKeys(QUIZ_ID);
+        verify(quizStatsRepository).lock(List.of(QUIZ_ID));
+    }
+
+    private void record(ScoredSubmission... submissions) {
+        history.addAll(List.of(submissions));
+        service.record(List.of(submissions));
+    }
+
+    private ScoredSubmission submission(long attemptId, int timeSpent, boolean expired, Map<Integer, Integer> answers) {
+        AnswerKey answerKey = answerKeyCache.get(QUIZ_ID);
+        int score = 0;
+        for (Map.Entry<Integer, Integer> answer : answers.entrySet()) {
+            if (answerKey.isValidAnswer(answer.getKey(), answer.getValue())
+                    && answerKey.isCorrect(answer.getKey(), answer.getValue())) {
+                score++;
+            }
+        }
+        return new ScoredSubmission(attemptId, attemptId + 100, QUIZ_ID, score, QUESTIONS, timeSpent, null, null,
+                answers, null, expired, !expired);
+    }
+
+    /** Строка quiz_attempts в порядке колонок forEachAttempt. */
+    private static ResultSet row(ScoredSubmission submission) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBoolean(1)).thenReturn(submission.expired());
+        when(rs.getInt(2)).thenReturn(submission.score());
+        when(rs.getInt(3)).thenReturn(submission.totalQuestions());
+        when(rs.getInt(4)).thenReturn(submission.timeSpent());
+        when(rs.getBytes(5)).thenReturn(AnswerCodec.encode(submission.answers()));
+        return rs;
+    }
+
+    /** Строка секции в порядке колонок forEachCompletedAttempt. */
+    private static ResultSet partitionRow(ScoredSubmission submission) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(submission.quizId());
+        when(rs.getBoolean(2)).thenReturn(submission.expired());
+        when(rs.getInt(3)).thenReturn(submission.score());
+        when(rs.getInt(4)).thenReturn(submission.totalQuestions());
+        when(rs.getInt(5)).thenReturn(submission.timeSpent());
+        when(rs.getBytes(6)).thenReturn(AnswerCodec.encode(submission.answers()));
+        return rs;
+    }
+
+    private void upsert(QuizStatsDelta delta) {
+        upsert(tables, delta);
+    }
+
+    private static void upsert(Map<Long, QuizStatsDelta> tables, QuizStatsDelta delta) {
+        tables.computeIfAbsent(delta.getQuizId(), quizId -> new QuizStatsDelta(quizId, QUESTIONS)).add(delta);
+    }
+
+    private static Optional<QuizStatsDelta> copy(Map<Long, QuizStatsDelta> tables, Long quizId, int questionCount) {
+        QuizStatsDelta stored = tables.get(quizId);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        QuizStatsDelta copy = new QuizStatsDelta(quizId, questionCount);
+        copy.add(stored);
+        return Optional.of(copy);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.utalieva.victorina.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankedSkipListTests {
+
+    @Test
+    void countLessThanIsRankForPresentAndAbsentValues() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        for (int value : new int[]{50, 10, 40, 20, 30}) {
+            list.insert(value);
+        }
+
+        assertThat(list.size()).isEqualTo(5);
+        assertThat(list.first(10)).containsExactly(10, 20, 30, 40, 50);
+        assertThat(list.countLessThan(10)).isZero();
+        assertThat(list.countLessThan(30)).isEqualTo(2);
+        assertThat(list.countLessThan(35)).isEqualTo(3);
+        assertThat(list.countLessThan(100)).isEqualTo(5);
+        assertThat(list.first(2)).containsExactly(10, 20);
+    }
+
+    @Test
+    void removeKeepsRanksConsistent() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        for (int value = 1; value <= 100; value++) {
+            list.insert(value);
+        }
+
+        assertThat(list.remove(50)).isTrue();
+        assertThat(list.remove(50)).isFalse();
+        assertThat(list.remove(1000)).isFalse();
+
+        assertThat(list.size()).isEqualTo(99);
+        assertThat(list.countLessThan(50)).isEqualTo(49);
+        assertThat(list.countLessThan(51)).isEqualTo(49);
+        assertThat(list.countLessThan(100)).isEqualTo(98);
+    }
+
+    @Test
+    void matchesSortedReferenceUnderRandomOperations() {
+        Random random = new Random(7);
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        TreeSet<Integer> reference = new TreeSet<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int value = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(list.remove(value)).isEqualTo(reference.remove(value));
+            } else if (reference.add(value)) {
+                list.insert(value);
+            }
+            if (step % 500 == 0) {
+                int probe = random.nextInt(2_100);
+                assertThat(list.countLessThan(probe)).isEqualTo(reference.headSet(probe).size());
+            }
+        }
+
+        assertThat(list.size()).isEqualTo(reference.size());
+        assertThat(list.first(reference.size())).containsExactlyElementsOf(reference);
+        List<Integer> sorted = new ArrayList<>(reference);
+        Collections.shuffle(sorted, random);
+        for (int value : sorted.subList(0, 100)) {
+            assertThat(list.countLessThan(value)).isEqualTo(reference.headSet(value).size());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.utalieva.victorina.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.utalieva.victorina.model.dto.ScoredSubmission;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubmissionLogTests {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void acknowledgedSegmentsAreDeletedWhileQueueIsNotEmpty() {
+        Path path = directory.resolve("submissions.log");
+        // Сегмент меньше одной записи: каждая пачка закрывает свой сегмент
+        try (SubmissionLog log = new SubmissionLog(path, 1, objectMapper)) {
+            log.append(List.of(submission(1), submission(2)));
+            log.append(List.of(submission(3)));
+            log.append(List.of(submission(4)));
+            assertThat(SubmissionLog.segmentPath(path, 1)).exists();
+
+            // Сохранена только часть первой пачки: её сегмент ещё нужен
+            log.acknowledge(1);
+            assertThat(SubmissionLog.segmentPath(path, 1)).exists();
+
+            log.acknowledge(2);
+            assertThat(SubmissionLog.segmentPath(path, 1)).doesNotExist();
+            assertThat(SubmissionLog.segmentPath(path, 2)).doesNotExist();
+            assertThat(SubmissionLog.segmentPath(path, 3)).exists();
+        }
+
+        try (SubmissionLog restarted = new SubmissionLog(path, 1, objectMapper)) {
+            assertThat(restarted.readRecovered()).extracting(ScoredSubmission::attemptId).containsExactly(4L);
+        }
+    }
+
+    @Test
+    void recoveredEntriesMoveToNewSegment() throws Exception {
+        Path path = directory.resolve("submissions.log");
+        // Журнал прежнего формата, без номера сегмента, с недописанной строкой в конце
+        Files.writeString(path, objectMapper.writeValueAsString(submission(7)) + "\n{\"attemptId\":");
+
+        try (SubmissionLog log = new SubmissionLog(path, 1024 * 1024, objectMapper)) {
+            List<ScoredSubmission> unsaved = log.readRecovered();
+            assertThat(unsaved).extracting(ScoredSubmission::attemptId).containsExactly(7L);
+            log.replaceRecovered(unsaved);
+            assertThat(path).doesNotExist();
+
+            log.append(List.of(submission(8)));
+            log.acknowledge(1);
+            assertThat(Files.readAllLines(SubmissionLog.segmentPath(path, 1))).hasSize(2);
+
+            log.acknowledge(1);
+            assertThat(SubmissionLog.segmentPath(path, 1)).isEmptyFile();
+        }
+        assertThat(SubmissionLog.exists(path)).isTrue();
+    }
+
+    private static ScoredSubmission submission(long attemptId) {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 12, 0);
+        return new ScoredSubmission(attemptId, 1L, 1L, 1, 2, 30, start, start.plusSeconds(30),
+                Map.of(0, 1), null, false, true);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.utalieva.victorina.service;
+
+import ru.utalieva.victorina.model.entity.Option;
+import ru.utalieva.victorina.model.entity.Question;
+import ru.utalieva.victorina.model.entity.Quiz;
+import ru.utalieva.victorina.model.entity.QuizResult;
+import ru.utalieva.victorina.model.enumination.QuizType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Графы викторин для модульных тестов, без базы. */
+final class TestQuizzes {
+    private TestQuizzes() {
+    }
+
+    /** Стандартная викторина: верный вариант вопроса i - i % options. */
+    static Quiz standard(long id, int questions, int options) {
+        Quiz quiz = new Quiz();
+        quiz.setId(id);
+        quiz.setTitle("Викторина " + id);
+        quiz.setQuizType(QuizType.STANDARD);
+        quiz.setResults(new ArrayList<>());
+        List<Question> quizQuestions = new ArrayList<>(questions);
+        for (int q = 0; q < questions; q++) {
+            Question question = new Question();
+            question.setQuestion("Вопрос " + q);
+            question.setCorrectIndex(q % options);
+            List<Option> questionOptions = new ArrayList<>(options);
+            for (int o = 0; o < options; o++) {
+                Option option = new Option();
+                option.setType("text");
+                option.setContent("Вариант " + o);
+                questionOptions.add(option);
+            }
+            question.setOptions(questionOptions);
+            quizQuestions.add(question);
+        }
+        quiz.setQuestions(quizQuestions);
+        return quiz;
+    }
+
+    /**
+     * Личностный тест: optionTraits - характеристики вариантов по вопросам,
+     * resultTargets - целевые характеристики результатов с id 1, 2, ...
+     */
+    static Quiz personality(long id, List<List<Map<String, Integer>>> optionTraits,
+                            List<Map<String, Integer>> resultTargets) {
+        Quiz quiz = new Quiz();
+        quiz.setId(id);
+        quiz.setTitle("Тест " + id);
+        quiz.setQuizType(QuizType.PERSONALITY);
+        List<Question> quizQuestions = new ArrayList<>(optionTraits.size());
+        for (int q = 0; q < optionTraits.size(); q++) {
+            Question question = new Question();
+            question.setQuestion("Вопрос " + q);
+            List<Option> questionOptions = new ArrayList<>();
+            for (Map<String, Integer> traits : optionTraits.get(q)) {
+                Option option = new Option();
+                option.setType("text");
+                option.setContent("Вариант " + questionOptions.size());
+                option.setTraits(traits);
+                questionOptions.add(option);
+            }
+            question.setOptions(questionOptions);
+            quizQuestions.add(question);
+        }
+        quiz.setQuestions(quizQuestions);
+        List<QuizResult> results = new ArrayList<>(resultTargets.size());
+        for (Map<String, Integer> target : resultTargets) {
+            QuizResult result = new QuizResult();
+            result.setId(results.size() + 1L);
+            result.setTitle("Результат " + result.getId());
+            result.setPersonalityTraits(target);
+            results.add(result);
+        }
+        quiz.setResults(results);
+        return quiz;
+    }
+}